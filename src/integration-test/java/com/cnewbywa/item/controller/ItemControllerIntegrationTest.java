@@ -43,6 +43,7 @@ import org.testcontainers.utility.DockerImageName;
 import com.cnewbywa.item.configuration.SecurityConfig;
 import com.cnewbywa.item.model.Item;
 import com.cnewbywa.item.repository.ItemRepository;
+import com.jayway.jsonpath.JsonPath;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
@@ -61,10 +62,10 @@ public class ItemControllerIntegrationTest {
 	
 	@Autowired
 	private ItemRepository itemRepository;
-
+	
 	@LocalServerPort
 	private int port;
-
+	
 	@Container
 	private static GenericContainer postgresqlContainer = new GenericContainer<>(DockerImageName.parse("postgres:15.4-alpine"))
 		.withEnv("POSTGRES_DB", "postgres")
@@ -89,7 +90,7 @@ public class ItemControllerIntegrationTest {
 	@BeforeEach
 	@Transactional
 	void setup() {
-
+	
 	}
 	
 	@AfterEach
@@ -112,6 +113,17 @@ public class ItemControllerIntegrationTest {
 			.andExpect(jsonPath("$.createdBy").value("38fe0f89-4b11-4e49-b4e6-82ec437f201f"));
 	}
 	
+	@Test
+	@WithMockUser
+	@Sql({"classpath:test_data.sql"})
+	void testGetItem_NotModified() throws Exception {
+		mockMvc
+			.perform(get("/694b64b0-e497-4f15-b481-7ef534c6acf7").secure(true).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+			.andExpect(status().isNotModified())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+			.andExpect(content().string(""));
+	}
+	
 	@Test
 	@WithMockUser
 	@Sql({"classpath:test_data.sql"})
@@ -178,6 +190,17 @@ public class ItemControllerIntegrationTest {
 			.andExpect(jsonPath("$.totalAmount").value("4"));
 	}
 	
+	@Test
+	@Sql({"classpath:test_data.sql"})
+	void testGetItemsWithoutCount() throws Exception {
+		mockMvc
+			.perform(get("/?page=0&size=2&count=NONE").secure(true))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.amount").value("2"))
+			.andExpect(jsonPath("$.totalAmount").doesNotExist())
+			.andExpect(jsonPath("$.hasNext").value(true));
+	}
+	
 	@Test
 	@Sql({"classpath:test_data.sql"})
 	void testGetItemsByUser() throws Exception {
@@ -194,6 +217,55 @@ public class ItemControllerIntegrationTest {
 			.andExpect(jsonPath("$.totalAmount").value("2"));
 	}
 	
+	@Test
+	@Sql({"classpath:test_data.sql"})
+	void testScrollItems() throws Exception {
+		mockMvc
+			.perform(get("/scroll?size=3").secure(true))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.items[0].id").value("20ba68c6-06db-4aad-b86f-859f68d0324b"))
+			.andExpect(jsonPath("$.items[1].id").value("d017c380-d1a9-43db-844d-3592d1d54314"))
+			.andExpect(jsonPath("$.items[2].id").value("b07cea5b-1420-446c-b463-d5167278575f"))
+			.andExpect(jsonPath("$.amount").value("3"))
+			.andExpect(jsonPath("$.nextCursor").isNotEmpty());
+	}
+	
+	@Test
+	@Sql({"classpath:test_data.sql"})
+	void testScrollItems_InvalidCursor() throws Exception {
+		mockMvc
+			.perform(get("/scroll?cursor=invalid").secure(true))
+			.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	@Sql({"classpath:test_data.sql"})
+	void testSearchItems() throws Exception {
+		mockMvc
+			.perform(get("/search?q=item 2").secure(true))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.items[0].id").value("b07cea5b-1420-446c-b463-d5167278575f"))
+			.andExpect(jsonPath("$.amount").value("1"));
+	}
+	
+	@Test
+	@Sql({"classpath:test_data.sql"})
+	void testSuggestItems() throws Exception {
+		mockMvc
+			.perform(get("/search/suggest?prefix=ITEM&size=2").secure(true))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.items[0].id").value("694b64b0-e497-4f15-b481-7ef534c6acf7"))
+			.andExpect(jsonPath("$.items[1].id").value("b07cea5b-1420-446c-b463-d5167278575f"))
+			.andExpect(jsonPath("$.amount").value("2"));
+	}
+	
+	@Test
+	void testSearchItems_InvalidQuery() throws Exception {
+		mockMvc
+			.perform(get("/search?q= ").secure(true))
+			.andExpect(status().isBadRequest());
+	}
+	
 	@Test
 	@WithMockUser
 	@Sql({"classpath:test_data.sql"})
@@ -228,6 +300,36 @@ public class ItemControllerIntegrationTest {
 		assertEquals(5, itemRepository.count());
 	}
 	
+	@Test
+	@WithMockUser
+	@Sql({"classpath:test_data.sql"})
+	void testAddItem_IdempotencyKey() throws Exception {
+		String content = "{ \"name\": \"Item 5\", \"description\": \"Description for item 5\"}";
+		String idempotencyKey = UUID.randomUUID().toString();
+		
+		String id = JsonPath.read(mockMvc
+			.perform(
+				post("").secure(true).contentType(MediaType.APPLICATION_JSON).content(content).header("Idempotency-Key", idempotencyKey).with(SecurityMockMvcRequestPostProcessors.jwt()))
+			.andExpect(status().isCreated())
+			.andReturn().getResponse().getContentAsString(), "$.id");
+		
+		mockMvc
+			.perform(
+				post("").secure(true).contentType(MediaType.APPLICATION_JSON).content(content).header("Idempotency-Key", idempotencyKey).with(SecurityMockMvcRequestPostProcessors.jwt()))
+			.andExpect(status().isCreated())
+			.andExpect(header().string("Idempotent-Replayed", "true"))
+			.andExpect(header().exists(HttpHeaders.LOCATION))
+			.andExpect(jsonPath("$.id").value(id));
+		
+		mockMvc
+			.perform(
+				post("").secure(true).contentType(MediaType.APPLICATION_JSON).content("{ \"name\": \"Item 6\", \"description\": \"Description for item 6\"}")
+					.header("Idempotency-Key", idempotencyKey).with(SecurityMockMvcRequestPostProcessors.jwt()))
+			.andExpect(status().isUnprocessableEntity());
+		
+		assertEquals(5, itemRepository.count());
+	}
+	
 	@Test
 	@WithMockUser
 	@Sql({"classpath:test_data.sql"})
@@ -250,6 +352,24 @@ public class ItemControllerIntegrationTest {
 		assertEquals("user", item.get().getModifiedBy());
 	}
 	
+	@Test
+	@WithMockUser
+	@Sql({"classpath:test_data.sql"})
+	void testUpdateItem_IfMatch() throws Exception {
+		String content = "{ \"name\": \"Item 2\", \"description\": \"New description for item 2\"}";
+		
+		mockMvc
+			.perform(
+				put("/b07cea5b-1420-446c-b463-d5167278575f").secure(true).header(HttpHeaders.IF_MATCH, "\"0\"").contentType(MediaType.APPLICATION_JSON).content(content).with(SecurityMockMvcRequestPostProcessors.jwt()))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+		
+		mockMvc
+			.perform(
+				put("/b07cea5b-1420-446c-b463-d5167278575f").secure(true).header(HttpHeaders.IF_MATCH, "\"0\"").contentType(MediaType.APPLICATION_JSON).content(content).with(SecurityMockMvcRequestPostProcessors.jwt()))
+			.andExpect(status().isPreconditionFailed());
+	}
+	
 	@Test
 	@WithMockUser
 	@Sql({"classpath:test_data.sql"})
@@ -262,6 +382,24 @@ public class ItemControllerIntegrationTest {
 			.andExpect(status().isNotFound());
 	}
 	
+	@Test
+	@WithMockUser
+	@Sql({"classpath:test_data.sql"})
+	void testGetItemsByIds() throws Exception {
+		String content = "[\"d017c380-d1a9-43db-844d-3592d1d54314\", \"00000000-0000-0000-0000-000000000000\", \"694b64b0-e497-4f15-b481-7ef534c6acf7\"]";
+		
+		mockMvc
+			.perform(
+				post("/batch-get").secure(true).contentType(MediaType.APPLICATION_JSON).content(content).with(SecurityMockMvcRequestPostProcessors.jwt()))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].id").value("d017c380-d1a9-43db-844d-3592d1d54314"))
+			.andExpect(jsonPath("$[0].found").value(true))
+			.andExpect(jsonPath("$[0].item.name").value("Item 3"))
+			.andExpect(jsonPath("$[1].found").value(false))
+			.andExpect(jsonPath("$[2].id").value("694b64b0-e497-4f15-b481-7ef534c6acf7"))
+			.andExpect(jsonPath("$[2].item.name").value("Item 1"));
+	}
+	
 	@Test
 	@WithMockUser
 	@Sql({"classpath:test_data.sql"})
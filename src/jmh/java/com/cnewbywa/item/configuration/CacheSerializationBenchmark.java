@@ -0,0 +1,134 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import com.cnewbywa.item.model.ItemDetailedResponseDto;
+import com.cnewbywa.item.model.ItemListResponseDto;
+import com.cnewbywa.item.model.ItemResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Round trips of the cache values through the serializer used by {@link RedisCacheConfig} (with default typing)
+ * and through a typed serializer without default typing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheSerializationBenchmark {
+
+	private static final int PAGE_SIZE = 20;
+	
+	private GenericJackson2JsonRedisSerializer typedSerializer;
+	
+	private Jackson2JsonRedisSerializer<ItemDetailedResponseDto> itemSerializer;
+	
+	private Jackson2JsonRedisSerializer<ItemListResponseDto> listSerializer;
+	
+	private ItemDetailedResponseDto item;
+	
+	private ItemListResponseDto list;
+	
+	private byte[] typedItemBytes;
+	
+	private byte[] typedListBytes;
+	
+	private byte[] itemBytes;
+	
+	private byte[] listBytes;
+	
+	@Setup
+	public void setup() {
+		typedSerializer = new GenericJackson2JsonRedisSerializer(RedisCacheConfig.createCacheObjectMapper(LaissezFaireSubTypeValidator.instance));
+		
+		ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+		itemSerializer = new Jackson2JsonRedisSerializer<>(objectMapper, ItemDetailedResponseDto.class);
+		listSerializer = new Jackson2JsonRedisSerializer<>(objectMapper, ItemListResponseDto.class);
+		
+		item = ItemDetailedResponseDto.builder()
+				.id(UUID.randomUUID())
+				.name("Item 1")
+				.description("Description for item 1")
+				.createTime(Instant.now())
+				.updateTime(Instant.now())
+				.createdBy(UUID.randomUUID().toString())
+				.modifiedBy(UUID.randomUUID().toString())
+				.build();
+		list = ItemListResponseDto.builder()
+				.items(IntStream.range(0, PAGE_SIZE).mapToObj(index -> ItemResponseDto.builder()
+						.id(UUID.randomUUID())
+						.name("Item " + index)
+						.createTime(Instant.now())
+						.createdBy(UUID.randomUUID().toString())
+						.build()).toList())
+				.amount(PAGE_SIZE)
+				.totalAmount(1000L)
+				.hasNext(true)
+				.build();
+		
+		typedItemBytes = typedSerializer.serialize(item);
+		typedListBytes = typedSerializer.serialize(list);
+		itemBytes = itemSerializer.serialize(item);
+		listBytes = listSerializer.serialize(list);
+	}
+	
+	@Benchmark
+	public byte[] serializeItemWithDefaultTyping() {
+		return typedSerializer.serialize(item);
+	}
+	
+	@Benchmark
+	public Object deserializeItemWithDefaultTyping() {
+		return typedSerializer.deserialize(typedItemBytes);
+	}
+	
+	@Benchmark
+	public byte[] serializeListWithDefaultTyping() {
+		return typedSerializer.serialize(list);
+	}
+	
+	@Benchmark
+	public Object deserializeListWithDefaultTyping() {
+		return typedSerializer.deserialize(typedListBytes);
+	}
+	
+	@Benchmark
+	public byte[] serializeItem() {
+		return itemSerializer.serialize(item);
+	}
+	
+	@Benchmark
+	public ItemDetailedResponseDto deserializeItem() {
+		return itemSerializer.deserialize(itemBytes);
+	}
+	
+	@Benchmark
+	public byte[] serializeList() {
+		return listSerializer.serialize(list);
+	}
+	
+	@Benchmark
+	public ItemListResponseDto deserializeList() {
+		return listSerializer.deserialize(listBytes);
+	}
+}
@@ -0,0 +1,65 @@
+package com.cnewbywa.item.service;
+
+import java.text.MessageFormat;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.Uuid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cnewbywa.events.EventMessage;
+import com.cnewbywa.item.model.ItemAction;
+import com.cnewbywa.item.model.OutboxEvent;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventBenchmark {
+
+	private OutboxRelay outboxRelay;
+	
+	private UUID itemId;
+	
+	private OutboxEvent outboxEvent;
+	
+	@Setup
+	public void setup() {
+		outboxRelay = new OutboxRelay();
+		ReflectionTestUtils.setField(outboxRelay, "applicationId", "item");
+		
+		itemId = UUID.randomUUID();
+		outboxEvent = createOutboxEvent();
+	}
+	
+	// the same steps as ItemService and EventSenderImpl take when storing an event
+	@Benchmark
+	public OutboxEvent createOutboxEvent() {
+		return OutboxEvent.builder()
+				.eventId(Uuid.randomUuid().toString())
+				.itemId(itemId)
+				.itemVersion(1L)
+				.action(ItemAction.MODIFY)
+				.message(MessageFormat.format(ItemService.EVENT_MESSAGE__MODIFY, itemId))
+				.createTime(Instant.now())
+				.build();
+	}
+	
+	@Benchmark
+	public EventMessage createEventMessage() {
+		return outboxRelay.createEventMessage(outboxEvent);
+	}
+}
@@ -0,0 +1,84 @@
+package com.cnewbywa.item.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemDetailedResponseDto;
+import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.model.ItemSummary;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemMappingBenchmark {
+
+	private static final int PAGE_SIZE = 20;
+	
+	private ItemService itemService;
+	
+	private Item item;
+	
+	private ItemSummary summary;
+	
+	private List<ItemSummary> page;
+	
+	@Setup
+	public void setup() {
+		// list reads return projections, which are proxies backed by the query result
+		ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+		
+		itemService = new ItemService();
+		item = createItem(1);
+		summary = projectionFactory.createProjection(ItemSummary.class, item);
+		page = IntStream.range(0, PAGE_SIZE).mapToObj(index -> projectionFactory.createProjection(ItemSummary.class, createItem(index))).toList();
+	}
+	
+	@Benchmark
+	public ItemDetailedResponseDto createDetailedResponseDto() {
+		return itemService.createDetailedResponseDto(item);
+	}
+	
+	@Benchmark
+	public ItemResponseDto createResponseDto() {
+		return itemService.createResponseDto(summary);
+	}
+	
+	@Benchmark
+	public List<ItemResponseDto> createResponseDtoPage() {
+		return page.stream().map(itemService::createResponseDto).toList();
+	}
+	
+	private Item createItem(int index) {
+		return Item.builder()
+				.id((long) index)
+				.itemId(UUID.randomUUID())
+				.name("Item " + index)
+				.description("Description for item " + index)
+				.createTime(Instant.now())
+				.updateTime(Instant.now())
+				.createdBy(UUID.randomUUID().toString())
+				.modifiedBy(UUID.randomUUID().toString())
+				.build();
+	}
+}
@@ -0,0 +1,50 @@
+package com.cnewbywa.item.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.cache.Cache;
+
+/**
+ * Cache that reads and backfills many entries with one round trip. The static methods fall back to single entry
+ * operations for caches that do not support batches.
+ */
+public interface BatchCache extends Cache {
+
+	/**
+	 * Get the values of the keys that are in the cache, entries with a null value are left out
+	 */
+	Map<Object, Object> getAll(Collection<?> keys);
+	
+	/**
+	 * Put the values of the keys that are not in the cache yet
+	 */
+	void putAllIfAbsent(Map<?, ?> values);
+	
+	static Map<Object, Object> getAll(Cache cache, Collection<?> keys) {
+		if (cache instanceof BatchCache batchCache) {
+			return batchCache.getAll(keys);
+		}
+		
+		Map<Object, Object> values = new HashMap<>();
+		
+		for (Object key : keys) {
+			ValueWrapper wrapper = cache.get(key);
+			
+			if (wrapper != null && wrapper.get() != null) {
+				values.put(key, wrapper.get());
+			}
+		}
+		
+		return values;
+	}
+	
+	static void putAllIfAbsent(Cache cache, Map<?, ?> values) {
+		if (cache instanceof BatchCache batchCache) {
+			batchCache.putAllIfAbsent(values);
+		} else {
+			values.forEach(cache::putIfAbsent);
+		}
+	}
+}
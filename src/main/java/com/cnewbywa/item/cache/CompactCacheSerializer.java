@@ -0,0 +1,124 @@
+package com.cnewbywa.item.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Serializes the values of one cache as Smile without type information, as the value type is known per cache.
+ * Values larger than the compression threshold are deflated.
+ * <p>
+ * The first byte of a serialized value tells its format. Values without a known format byte, i.e. entries written
+ * before the cache was switched to this serializer, and values of other types (like the null value marker) are handled
+ * by the fallback serializer, so existing entries stay readable until they expire.
+ * <p>
+ * Nodes running an earlier version can only read the fallback format. The compact format is therefore read always but written
+ * only when enabled, which is done once every node reads it.
+ */
+public class CompactCacheSerializer<T> implements RedisSerializer<Object> {
+
+	static final byte FORMAT_SMILE = 0x01;
+	static final byte FORMAT_SMILE_DEFLATED = 0x02;
+	
+	private final Class<T> type;
+	
+	private final ObjectMapper objectMapper;
+	
+	private final RedisSerializer<Object> fallbackSerializer;
+	
+	private final int compressionThreshold;
+	
+	private final boolean writeCompact;
+	
+	public CompactCacheSerializer(Class<T> type, RedisSerializer<Object> fallbackSerializer, int compressionThreshold, boolean writeCompact) {
+		this.type = type;
+		this.objectMapper = createObjectMapper();
+		this.fallbackSerializer = fallbackSerializer;
+		this.compressionThreshold = compressionThreshold;
+		this.writeCompact = writeCompact;
+	}
+	
+	@Override
+	public byte[] serialize(Object value) {
+		if (!writeCompact || !type.isInstance(value)) {
+			return fallbackSerializer.serialize(value);
+		}
+		
+		try {
+			byte[] data = objectMapper.writeValueAsBytes(value);
+			
+			return data.length > compressionThreshold ? withFormat(FORMAT_SMILE_DEFLATED, deflate(data)) : withFormat(FORMAT_SMILE, data);
+		} catch (IOException e) {
+			throw new SerializationException("Could not write cache value", e);
+		}
+	}
+	
+	@Override
+	public Object deserialize(byte[] bytes) {
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		
+		try {
+			switch (bytes[0]) {
+				case FORMAT_SMILE:
+					return objectMapper.readValue(bytes, 1, bytes.length - 1, type);
+				case FORMAT_SMILE_DEFLATED:
+					try (InputStream input = new InflaterInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+						return objectMapper.readValue(input, type);
+					}
+				default:
+					return fallbackSerializer.deserialize(bytes);
+			}
+		} catch (IOException e) {
+			throw new SerializationException("Could not read cache value", e);
+		}
+	}
+	
+	private static ObjectMapper createObjectMapper() {
+		SmileFactory smileFactory = SmileFactory.builder()
+				.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+				.build();
+		
+		ObjectMapper newObjectMapper = new ObjectMapper(smileFactory);
+		newObjectMapper.registerModule(new JavaTimeModule());
+		// entries written by an earlier version of the value type must stay readable
+		newObjectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		
+		return newObjectMapper;
+	}
+	
+	private static byte[] withFormat(byte format, byte[] data) {
+		byte[] result = new byte[data.length + 1];
+		result[0] = format;
+		System.arraycopy(data, 0, result, 1, data.length);
+		
+		return result;
+	}
+	
+	private static byte[] deflate(byte[] data) throws IOException {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2);
+		
+		try (DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(output, deflater)) {
+			deflaterOutput.write(data);
+		} finally {
+			deflater.end();
+		}
+		
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,105 @@
+package com.cnewbywa.item.cache;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cnewbywa.item.model.CountMode;
+import com.cnewbywa.item.model.ItemSearchQuery;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the keys of the "items" list cache and the "search" cache. Each key contains a generation counter (global or per user) stored in Redis.
+ * Writes bump the counters, which makes all earlier list entries unreachable without deleting them.
+ */
+@Component("itemListCacheKeys")
+@Slf4j
+public class ItemListCacheKeys {
+
+	static final String GLOBAL_GENERATION_KEY = "items:generation:all";
+	static final String USER_GENERATION_KEY_PREFIX = "items:generation:user:";
+	
+	@Value("${application.cache.items.time-to-live}")
+	private long listTtl;
+	
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+	
+	public String global(Pageable pageable, CountMode countMode) {
+		return "all|" + getGeneration(GLOBAL_GENERATION_KEY) + "|" + describe(pageable) + "|" + countMode;
+	}
+	
+	public String user(String user, Pageable pageable, CountMode countMode) {
+		return "user|" + user + "|" + getGeneration(USER_GENERATION_KEY_PREFIX + user) + "|" + describe(pageable) + "|" + countMode;
+	}
+	
+	public String search(ItemSearchQuery query, String cursor, int size) {
+		return "search|" + getGeneration(GLOBAL_GENERATION_KEY) + "|" + query.text() + "|" + cursor + "|" + size;
+	}
+	
+	public String suggest(ItemSearchQuery prefix, int size) {
+		return "suggest|" + getGeneration(GLOBAL_GENERATION_KEY) + "|" + prefix.text() + "|" + size;
+	}
+	
+	/**
+	 * Get the global generation, which changes whenever any item is added, modified or deleted
+	 */
+	public String getGlobalGeneration() {
+		return getGeneration(GLOBAL_GENERATION_KEY);
+	}
+	
+	/**
+	 * Bump the global generation and the generation of the given user after the current transaction has been committed
+	 *
+	 * @param user owner of the modified item, can be null
+	 */
+	public void bumpGenerations(String user) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					incrementGenerations(user);
+				}
+			});
+		} else {
+			incrementGenerations(user);
+		}
+	}
+	
+	private void incrementGenerations(String user) {
+		try {
+			redisTemplate.opsForValue().increment(GLOBAL_GENERATION_KEY);
+			
+			if (user != null) {
+				String userKey = USER_GENERATION_KEY_PREFIX + user;
+				
+				redisTemplate.opsForValue().increment(userKey);
+				// the counter must live longer than the list entries so that an expired counter cannot restart from a generation that is still cached
+				redisTemplate.expire(userKey, Duration.ofMillis(listTtl * 2));
+			}
+		} catch (RuntimeException e) {
+			log.error("Error updating item list cache generations", e);
+		}
+	}
+	
+	private String getGeneration(String key) {
+		String generation = redisTemplate.opsForValue().get(key);
+		
+		return generation != null ? generation : "0";
+	}
+	
+	private String describe(Pageable pageable) {
+		if (pageable.isUnpaged()) {
+			return "unpaged|" + pageable.getSort();
+		}
+		
+		return pageable.getPageNumber() + "|" + pageable.getPageSize() + "|" + pageable.getSort();
+	}
+}
@@ -0,0 +1,140 @@
+package com.cnewbywa.item.cache;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
+
+/**
+ * Redis cache that reads many entries with one MGET and backfills them with one pipeline. Keys and values are written
+ * the same way as {@link RedisCache} writes them, so entries are shared with single entry operations.
+ */
+public class RedisBatchCache implements BatchCache {
+
+	private final RedisCache cache;
+	
+	private final RedisConnectionFactory connectionFactory;
+	
+	public RedisBatchCache(RedisCache cache, RedisConnectionFactory connectionFactory) {
+		this.cache = cache;
+		this.connectionFactory = connectionFactory;
+	}
+	
+	@Override
+	public String getName() {
+		return cache.getName();
+	}
+	
+	@Override
+	public Object getNativeCache() {
+		return cache.getNativeCache();
+	}
+	
+	@Override
+	public ValueWrapper get(Object key) {
+		return cache.get(key);
+	}
+	
+	@Override
+	public <T> T get(Object key, Class<T> type) {
+		return cache.get(key, type);
+	}
+	
+	@Override
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		return cache.get(key, valueLoader);
+	}
+	
+	@Override
+	public void put(Object key, Object value) {
+		cache.put(key, value);
+	}
+	
+	@Override
+	public void evict(Object key) {
+		cache.evict(key);
+	}
+	
+	@Override
+	public void clear() {
+		cache.clear();
+	}
+	
+	@Override
+	public Map<Object, Object> getAll(Collection<?> keys) {
+		Map<Object, Object> values = new HashMap<>();
+		
+		if (keys.isEmpty()) {
+			return values;
+		}
+		
+		List<Object> keyList = new ArrayList<>(keys);
+		List<byte[]> rawValues;
+		
+		try (RedisConnection connection = connectionFactory.getConnection()) {
+			rawValues = connection.stringCommands().mGet(keyList.stream().map(this::serializeKey).toArray(byte[][]::new));
+		}
+		
+		for (int i = 0; rawValues != null && i < keyList.size(); i++) {
+			Object value = rawValues.get(i) != null ? deserializeValue(rawValues.get(i)) : null;
+			
+			if (value != null && !(value instanceof NullValue)) {
+				values.put(keyList.get(i), value);
+			}
+		}
+		
+		return values;
+	}
+	
+	@Override
+	public void putAllIfAbsent(Map<?, ?> values) {
+		if (values.isEmpty()) {
+			return;
+		}
+		
+		RedisCacheConfiguration config = cache.getCacheConfiguration();
+		
+		try (RedisConnection connection = connectionFactory.getConnection()) {
+			connection.openPipeline();
+			
+			values.forEach((key, value) -> {
+				Duration ttl = config.getTtlFunction().getTimeToLive(key, value);
+				Expiration expiration = ttl != null && !ttl.isZero() && !ttl.isNegative() ? Expiration.from(ttl) : Expiration.persistent();
+				
+				connection.stringCommands().set(serializeKey(key), serializeValue(value), expiration, SetOption.ifAbsent());
+			});
+			
+			connection.closePipeline();
+		}
+	}
+	
+	private byte[] serializeKey(Object key) {
+		RedisCacheConfiguration config = cache.getCacheConfiguration();
+		
+		String convertedKey = key instanceof String stringKey ? stringKey : config.getConversionService().convert(key, String.class);
+		String cacheKey = config.usePrefix() ? config.getKeyPrefixFor(getName()) + convertedKey : convertedKey;
+		
+		return ByteUtils.getBytes(config.getKeySerializationPair().write(cacheKey));
+	}
+	
+	private byte[] serializeValue(Object value) {
+		return ByteUtils.getBytes(cache.getCacheConfiguration().getValueSerializationPair().write(value));
+	}
+	
+	private Object deserializeValue(byte[] value) {
+		return cache.getCacheConfiguration().getValueSerializationPair().read(ByteBuffer.wrap(value));
+	}
+}
@@ -0,0 +1,78 @@
+package com.cnewbywa.item.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.cnewbywa.item.model.SerializedItemResponse;
+
+/**
+ * Stores serialized responses as they are: the format byte, the length and the bytes of the ETag, and the response body.
+ * Reading an entry copies the body out without parsing it. Values of other types (like the null value marker) are handled
+ * by the fallback serializer.
+ */
+public class SerializedResponseSerializer implements RedisSerializer<Object> {
+
+	static final byte FORMAT_RAW = 0x01;
+	
+	private static final int NO_ETAG = -1;
+	
+	private final RedisSerializer<Object> fallbackSerializer;
+	
+	public SerializedResponseSerializer(RedisSerializer<Object> fallbackSerializer) {
+		this.fallbackSerializer = fallbackSerializer;
+	}
+	
+	@Override
+	public byte[] serialize(Object value) {
+		if (!(value instanceof SerializedItemResponse response)) {
+			return fallbackSerializer.serialize(value);
+		}
+		
+		byte[] eTag = response.eTag() != null ? response.eTag().getBytes(StandardCharsets.UTF_8) : new byte[0];
+		
+		return ByteBuffer.allocate(1 + Integer.BYTES + eTag.length + response.body().length)
+				.put(FORMAT_RAW)
+				.putInt(response.eTag() != null ? eTag.length : NO_ETAG)
+				.put(eTag)
+				.put(response.body())
+				.array();
+	}
+	
+	@Override
+	public Object deserialize(byte[] bytes) {
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		
+		if (bytes[0] != FORMAT_RAW) {
+			return fallbackSerializer.deserialize(bytes);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+		
+		if (buffer.remaining() < Integer.BYTES) {
+			throw new SerializationException("Could not read cache value");
+		}
+		
+		int eTagLength = buffer.getInt();
+		
+		if (eTagLength < NO_ETAG || eTagLength > buffer.remaining()) {
+			throw new SerializationException("Could not read cache value");
+		}
+		
+		String eTag = null;
+		
+		if (eTagLength != NO_ETAG) {
+			eTag = new String(bytes, buffer.position(), eTagLength, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + eTagLength);
+		}
+		
+		byte[] body = new byte[buffer.remaining()];
+		buffer.get(body);
+		
+		return new SerializedItemResponse(body, eTag);
+	}
+}
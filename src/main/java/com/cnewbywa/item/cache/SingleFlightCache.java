@@ -0,0 +1,315 @@
+package com.cnewbywa.item.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache that lets concurrent misses of the same key share one load. Loads are coalesced within the node and,
+ * when a lock timeout is set, across nodes with a short lived Redis lock: a node that does not get the lock waits
+ * for the value to appear in the cache instead of loading it as well.
+ * <p>
+ * Values loaded by this node are refreshed before they expire with a probability that grows as the expiry gets
+ * closer and the load gets slower (probabilistic early expiration). Other callers are served the current value
+ * while the refresh is running.
+ */
+@Slf4j
+public class SingleFlightCache implements BatchCache {
+
+	static final String METRIC_NAME = "cache.singleflight.loads";
+	
+	private static final String LOCK_KEY_PREFIX = "cache-lock:";
+	private static final long LOCK_POLL_INTERVAL = 50;
+	
+	private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+			"if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+	
+	private final Cache cache;
+	
+	private final long ttlNanos;
+	
+	private final StringRedisTemplate redisTemplate;
+	
+	private final Duration lockTimeout;
+	
+	private final double earlyRefreshBeta;
+	
+	private final ConcurrentMap<Object, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+	
+	private final com.github.benmanes.caffeine.cache.Cache<Object, LoadTime> loadTimes;
+	
+	private final Counter leaderLoads;
+	private final Counter coalescedLoads;
+	private final Counter earlyRefreshes;
+	
+	public SingleFlightCache(Cache cache, Duration ttl, StringRedisTemplate redisTemplate, Duration lockTimeout, double earlyRefreshBeta, MeterRegistry meterRegistry) {
+		this.cache = cache;
+		this.ttlNanos = ttl.toNanos();
+		this.redisTemplate = redisTemplate;
+		this.lockTimeout = lockTimeout;
+		this.earlyRefreshBeta = earlyRefreshBeta;
+		this.loadTimes = Caffeine.newBuilder()
+				.maximumSize(10000)
+				.expireAfterWrite(ttl)
+				.build();
+		this.leaderLoads = createCounter(meterRegistry, "load");
+		this.coalescedLoads = createCounter(meterRegistry, "coalesced");
+		this.earlyRefreshes = createCounter(meterRegistry, "refresh");
+	}
+	
+	@Override
+	public String getName() {
+		return cache.getName();
+	}
+	
+	@Override
+	public Object getNativeCache() {
+		return cache.getNativeCache();
+	}
+	
+	@Override
+	public ValueWrapper get(Object key) {
+		return cache.get(key);
+	}
+	
+	@Override
+	public <T> T get(Object key, Class<T> type) {
+		return cache.get(key, type);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		ValueWrapper wrapper = cache.get(key);
+		
+		if (wrapper == null) {
+			return (T) load(key, valueLoader);
+		}
+		
+		ValueWrapper refreshed = refreshEarly(key, valueLoader);
+		
+		return (T) (refreshed != null ? refreshed : wrapper).get();
+	}
+	
+	/**
+	 * Reload the value of a cached key if its early refresh is due. Used also by caches in front of this one, which serve
+	 * hits without calling this cache.
+	 *
+	 * @return the reloaded value, or null if the refresh was not due or failed
+	 */
+	ValueWrapper refreshEarly(Object key, Callable<?> valueLoader) {
+		if (!shouldRefreshEarly(key) || loads.containsKey(key)) {
+			return null;
+		}
+		
+		earlyRefreshes.increment();
+		
+		try {
+			return new SimpleValueWrapper(load(key, valueLoader));
+		} catch (ValueRetrievalException e) {
+			log.warn("Early refresh of key {} in cache {} failed, returning the cached value", key, getName(), e);
+			
+			return null;
+		}
+	}
+	
+	@Override
+	public void put(Object key, Object value) {
+		cache.put(key, value);
+		
+		// the entry got a new time to live
+		loadTimes.asMap().computeIfPresent(key, (k, loadTime) -> new LoadTime(System.nanoTime() + ttlNanos, loadTime.loadNanos()));
+	}
+	
+	@Override
+	public void evict(Object key) {
+		cache.evict(key);
+		
+		loadTimes.invalidate(key);
+	}
+	
+	@Override
+	public void clear() {
+		cache.clear();
+		
+		loadTimes.invalidateAll();
+	}
+	
+	@Override
+	public Map<Object, Object> getAll(Collection<?> keys) {
+		return BatchCache.getAll(cache, keys);
+	}
+	
+	@Override
+	public void putAllIfAbsent(Map<?, ?> values) {
+		BatchCache.putAllIfAbsent(cache, values);
+	}
+	
+	private Object load(Object key, Callable<?> valueLoader) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		CompletableFuture<Object> runningLoad = loads.putIfAbsent(key, future);
+		
+		if (runningLoad != null) {
+			coalescedLoads.increment();
+			
+			return await(key, valueLoader, runningLoad);
+		}
+		
+		leaderLoads.increment();
+		
+		try {
+			Object value = loadWithLock(key, valueLoader);
+			
+			future.complete(value);
+			
+			return value;
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			
+			throw e;
+		} finally {
+			loads.remove(key, future);
+		}
+	}
+	
+	private Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> runningLoad) {
+		try {
+			return runningLoad.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause() instanceof ValueRetrievalException valueRetrievalException ? valueRetrievalException.getCause() : e.getCause();
+			
+			throw new ValueRetrievalException(key, valueLoader, cause);
+		}
+	}
+	
+	private Object loadWithLock(Object key, Callable<?> valueLoader) {
+		if (lockTimeout.isZero()) {
+			return loadAndPut(key, valueLoader);
+		}
+		
+		String lockKey = LOCK_KEY_PREFIX + getName() + ":" + key;
+		String token = UUID.randomUUID().toString();
+		
+		boolean locked = tryLock(lockKey, token);
+		
+		if (!locked) {
+			ValueWrapper wrapper = awaitValue(key);
+			
+			if (wrapper != null) {
+				return wrapper.get();
+			}
+		}
+		
+		try {
+			return loadAndPut(key, valueLoader);
+		} finally {
+			if (locked) {
+				unlock(lockKey, token);
+			}
+		}
+	}
+	
+	private Object loadAndPut(Object key, Callable<?> valueLoader) {
+		long start = System.nanoTime();
+		
+		Object value;
+		
+		try {
+			value = valueLoader.call();
+		} catch (Exception e) {
+			throw new ValueRetrievalException(key, valueLoader, e);
+		}
+		
+		long end = System.nanoTime();
+		
+		cache.put(key, value);
+		loadTimes.put(key, new LoadTime(end + ttlNanos, end - start));
+		
+		return value;
+	}
+	
+	// XFetch: refresh when now - load time * beta * ln(random) reaches the expiry time
+	private boolean shouldRefreshEarly(Object key) {
+		LoadTime loadTime = earlyRefreshBeta > 0 ? loadTimes.getIfPresent(key) : null;
+		
+		if (loadTime == null) {
+			return false;
+		}
+		
+		double gap = loadTime.loadNanos() * earlyRefreshBeta * -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+		
+		return System.nanoTime() + gap >= loadTime.expiresAt();
+	}
+	
+	private boolean tryLock(String lockKey, String token) {
+		try {
+			return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, token, lockTimeout));
+		} catch (RuntimeException e) {
+			log.error("Error acquiring cache lock " + lockKey, e);
+			
+			// without Redis the cache is not available either, so the value is loaded directly
+			return false;
+		}
+	}
+	
+	private void unlock(String lockKey, String token) {
+		try {
+			redisTemplate.execute(UNLOCK_SCRIPT, List.of(lockKey), token);
+		} catch (RuntimeException e) {
+			log.error("Error releasing cache lock " + lockKey, e);
+		}
+	}
+	
+	// another node holds the lock and is loading the value
+	private ValueWrapper awaitValue(Object key) {
+		long deadline = System.nanoTime() + lockTimeout.toNanos();
+		
+		try {
+			while (true) {
+				ValueWrapper wrapper = cache.get(key);
+				
+				if (wrapper != null || System.nanoTime() >= deadline) {
+					return wrapper;
+				}
+				
+				Thread.sleep(LOCK_POLL_INTERVAL);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			log.error("Error reading key " + key + " from cache " + getName(), e);
+		}
+		
+		return null;
+	}
+	
+	private Counter createCounter(MeterRegistry meterRegistry, String type) {
+		return Counter.builder(METRIC_NAME)
+				.tag("cache", getName())
+				.tag("type", type)
+				.register(meterRegistry);
+	}
+	
+	private record LoadTime(long expiresAt, long loadNanos) {
+	}
+}
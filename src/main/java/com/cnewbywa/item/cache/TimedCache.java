@@ -0,0 +1,113 @@
+package com.cnewbywa.item.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cache.Cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Cache that records the latency of the operations of the decorated (remote) cache. Loads through
+ * {@link #get(Object, Callable)} are not timed, as their time is spent in the value loader.
+ */
+public class TimedCache implements BatchCache {
+
+	static final String METRIC_NAME = "item.cache.remote";
+	
+	private final Cache cache;
+	
+	private final Timer hits;
+	private final Timer misses;
+	private final Timer puts;
+	private final Timer evictions;
+	private final Timer batchGets;
+	private final Timer batchPuts;
+	
+	public TimedCache(Cache cache, MeterRegistry meterRegistry) {
+		this.cache = cache;
+		this.hits = createTimer(meterRegistry, "get", "hit");
+		this.misses = createTimer(meterRegistry, "get", "miss");
+		this.puts = createTimer(meterRegistry, "put", "none");
+		this.evictions = createTimer(meterRegistry, "evict", "none");
+		this.batchGets = createTimer(meterRegistry, "get-all", "none");
+		this.batchPuts = createTimer(meterRegistry, "put-all", "none");
+	}
+	
+	@Override
+	public String getName() {
+		return cache.getName();
+	}
+	
+	@Override
+	public Object getNativeCache() {
+		return cache.getNativeCache();
+	}
+	
+	@Override
+	public ValueWrapper get(Object key) {
+		long start = System.nanoTime();
+		
+		ValueWrapper wrapper = cache.get(key);
+		
+		recordGet(start, wrapper != null);
+		
+		return wrapper;
+	}
+	
+	@Override
+	public <T> T get(Object key, Class<T> type) {
+		long start = System.nanoTime();
+		
+		T value = cache.get(key, type);
+		
+		recordGet(start, value != null);
+		
+		return value;
+	}
+	
+	@Override
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		return cache.get(key, valueLoader);
+	}
+	
+	@Override
+	public void put(Object key, Object value) {
+		puts.record(() -> cache.put(key, value));
+	}
+	
+	@Override
+	public void evict(Object key) {
+		evictions.record(() -> cache.evict(key));
+	}
+	
+	@Override
+	public void clear() {
+		evictions.record(cache::clear);
+	}
+	
+	@Override
+	public Map<Object, Object> getAll(Collection<?> keys) {
+		return batchGets.record(() -> BatchCache.getAll(cache, keys));
+	}
+	
+	@Override
+	public void putAllIfAbsent(Map<?, ?> values) {
+		batchPuts.record(() -> BatchCache.putAllIfAbsent(cache, values));
+	}
+	
+	private void recordGet(long start, boolean hit) {
+		(hit ? hits : misses).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+	
+	private Timer createTimer(MeterRegistry meterRegistry, String operation, String result) {
+		return Timer.builder(METRIC_NAME)
+				.tag("cache", getName())
+				.tag("operation", operation)
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+}
@@ -0,0 +1,235 @@
+package com.cnewbywa.item.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache with an in-process (L1) cache in front of a remote (L2) cache.
+ * Local entries are removed on other nodes through the invalidation publisher.
+ */
+public class TwoTierCache implements BatchCache {
+
+	static final String METRIC_NAME = "cache.tier.gets";
+	
+	private final Cache remoteCache;
+	
+	private final com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> localCache;
+	
+	private final BiConsumer<String, String> invalidationPublisher;
+	
+	private final Counter localHits;
+	private final Counter localMisses;
+	private final Counter remoteHits;
+	private final Counter remoteMisses;
+	
+	public TwoTierCache(Cache remoteCache, Caffeine<Object, Object> localCacheBuilder, BiConsumer<String, String> invalidationPublisher, MeterRegistry meterRegistry) {
+		this.remoteCache = remoteCache;
+		this.localCache = localCacheBuilder.build();
+		this.invalidationPublisher = invalidationPublisher;
+		this.localHits = createCounter(meterRegistry, "local", "hit");
+		this.localMisses = createCounter(meterRegistry, "local", "miss");
+		this.remoteHits = createCounter(meterRegistry, "remote", "hit");
+		this.remoteMisses = createCounter(meterRegistry, "remote", "miss");
+	}
+	
+	@Override
+	public String getName() {
+		return remoteCache.getName();
+	}
+	
+	@Override
+	public Object getNativeCache() {
+		return remoteCache.getNativeCache();
+	}
+	
+	@Override
+	public ValueWrapper get(Object key) {
+		String localKey = toLocalKey(key);
+		
+		ValueWrapper value = localCache.getIfPresent(localKey);
+		
+		if (value != null) {
+			localHits.increment();
+			
+			return value;
+		}
+		
+		localMisses.increment();
+		
+		value = remoteCache.get(key);
+		
+		if (value != null) {
+			remoteHits.increment();
+			
+			localCache.put(localKey, value);
+		} else {
+			remoteMisses.increment();
+		}
+		
+		return value;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Class<T> type) {
+		ValueWrapper wrapper = get(key);
+		
+		Object value = wrapper != null ? wrapper.get() : null;
+		
+		if (value != null && type != null && !type.isInstance(value)) {
+			throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+		}
+		
+		return (T) value;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		String localKey = toLocalKey(key);
+		
+		ValueWrapper wrapper = localCache.getIfPresent(localKey);
+		
+		if (wrapper != null) {
+			localHits.increment();
+			
+			// hits do not reach the remote cache, so its early refresh is checked here
+			ValueWrapper refreshed = remoteCache instanceof SingleFlightCache singleFlightCache ? singleFlightCache.refreshEarly(key, valueLoader) : null;
+			
+			if (refreshed != null) {
+				localCache.put(localKey, refreshed);
+				
+				return (T) refreshed.get();
+			}
+			
+			return (T) wrapper.get();
+		}
+		
+		localMisses.increment();
+		
+		// the remote cache is read only once, a remote hit is told apart from a miss by the loader not being called
+		AtomicBoolean loaded = new AtomicBoolean();
+		
+		T value = remoteCache.get(key, () -> {
+			loaded.set(true);
+			
+			return valueLoader.call();
+		});
+		
+		if (loaded.get()) {
+			remoteMisses.increment();
+		} else {
+			remoteHits.increment();
+		}
+		
+		localCache.put(localKey, new SimpleValueWrapper(value));
+		
+		return value;
+	}
+	
+	@Override
+	public void put(Object key, Object value) {
+		remoteCache.put(key, value);
+		
+		String localKey = toLocalKey(key);
+		
+		localCache.put(localKey, new SimpleValueWrapper(value));
+		invalidationPublisher.accept(getName(), localKey);
+	}
+	
+	@Override
+	public void evict(Object key) {
+		remoteCache.evict(key);
+		
+		String localKey = toLocalKey(key);
+		
+		localCache.invalidate(localKey);
+		invalidationPublisher.accept(getName(), localKey);
+	}
+	
+	@Override
+	public void clear() {
+		remoteCache.clear();
+		
+		localCache.invalidateAll();
+		invalidationPublisher.accept(getName(), null);
+	}
+	
+	@Override
+	public Map<Object, Object> getAll(Collection<?> keys) {
+		Map<Object, Object> values = new HashMap<>();
+		List<Object> remoteKeys = new ArrayList<>();
+		
+		for (Object key : keys) {
+			ValueWrapper wrapper = localCache.getIfPresent(toLocalKey(key));
+			
+			if (wrapper != null) {
+				localHits.increment();
+				
+				if (wrapper.get() != null) {
+					values.put(key, wrapper.get());
+				}
+			} else {
+				localMisses.increment();
+				
+				remoteKeys.add(key);
+			}
+		}
+		
+		if (remoteKeys.isEmpty()) {
+			return values;
+		}
+		
+		Map<Object, Object> remoteValues = BatchCache.getAll(remoteCache, remoteKeys);
+		
+		remoteHits.increment(remoteValues.size());
+		remoteMisses.increment(remoteKeys.size() - (double) remoteValues.size());
+		
+		remoteValues.forEach((key, value) -> localCache.put(toLocalKey(key), new SimpleValueWrapper(value)));
+		values.putAll(remoteValues);
+		
+		return values;
+	}
+	
+	// values are backfilled from the database, so the local entries of other nodes are not invalidated
+	@Override
+	public void putAllIfAbsent(Map<?, ?> values) {
+		BatchCache.putAllIfAbsent(remoteCache, values);
+		
+		values.forEach((key, value) -> localCache.asMap().putIfAbsent(toLocalKey(key), new SimpleValueWrapper(value)));
+	}
+	
+	void evictLocal(String localKey) {
+		localCache.invalidate(localKey);
+	}
+	
+	void clearLocal() {
+		localCache.invalidateAll();
+	}
+	
+	private String toLocalKey(Object key) {
+		return String.valueOf(key);
+	}
+	
+	private Counter createCounter(MeterRegistry meterRegistry, String tier, String result) {
+		return Counter.builder(METRIC_NAME)
+				.tag("cache", getName())
+				.tag("tier", tier)
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+}
@@ -0,0 +1,118 @@
+package com.cnewbywa.item.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache manager that wraps the configured caches of the remote cache manager into {@link TwoTierCache} instances.
+ * The remote caches can be decorated before that, e.g. to coalesce loads.
+ * Invalidations are published to a Redis channel and the manager listens to the same channel to evict local entries
+ * written by other nodes.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, MessageListener {
+
+	private static final String SEPARATOR = "\n";
+	
+	private final String nodeId = UUID.randomUUID().toString();
+	
+	private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+	
+	private final CacheManager remoteCacheManager;
+	
+	private final UnaryOperator<Cache> remoteCacheDecorator;
+	
+	private final Set<String> localCacheNames;
+	
+	private final Caffeine<Object, Object> localCacheBuilder;
+	
+	private final StringRedisTemplate redisTemplate;
+	
+	private final String invalidationChannel;
+	
+	private final MeterRegistry meterRegistry;
+	
+	public TwoTierCacheManager(CacheManager remoteCacheManager, UnaryOperator<Cache> remoteCacheDecorator, Set<String> localCacheNames,
+			Caffeine<Object, Object> localCacheBuilder, StringRedisTemplate redisTemplate, String invalidationChannel, MeterRegistry meterRegistry) {
+		this.remoteCacheManager = remoteCacheManager;
+		this.remoteCacheDecorator = remoteCacheDecorator;
+		this.localCacheNames = localCacheNames;
+		this.localCacheBuilder = localCacheBuilder;
+		this.redisTemplate = redisTemplate;
+		this.invalidationChannel = invalidationChannel;
+		this.meterRegistry = meterRegistry;
+	}
+	
+	@Override
+	public Cache getCache(String name) {
+		return caches.computeIfAbsent(name, this::createCache);
+	}
+	
+	@Override
+	public Collection<String> getCacheNames() {
+		return remoteCacheManager.getCacheNames();
+	}
+	
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARATOR, 3);
+		
+		if (parts.length < 2 || nodeId.equals(parts[0])) {
+			return;
+		}
+		
+		if (caches.get(parts[1]) instanceof TwoTierCache cache) {
+			if (parts.length == 3) {
+				log.debug("Evicting local entry {} from cache {}", parts[2], parts[1]);
+				
+				cache.evictLocal(parts[2]);
+			} else {
+				log.debug("Clearing local cache {}", parts[1]);
+				
+				cache.clearLocal();
+			}
+		}
+	}
+	
+	private Cache createCache(String name) {
+		Cache remoteCache = remoteCacheManager.getCache(name);
+		
+		if (remoteCache == null) {
+			return null;
+		}
+		
+		remoteCache = remoteCacheDecorator.apply(remoteCache);
+		
+		if (!localCacheNames.contains(name)) {
+			return remoteCache;
+		}
+		
+		return new TwoTierCache(remoteCache, localCacheBuilder, this::publishInvalidation, meterRegistry);
+	}
+	
+	private void publishInvalidation(String cacheName, String key) {
+		String message = key != null ? String.join(SEPARATOR, nodeId, cacheName, key) : String.join(SEPARATOR, nodeId, cacheName);
+		
+		try {
+			redisTemplate.convertAndSend(invalidationChannel, message);
+		} catch (RuntimeException e) {
+			log.error("Error publishing cache invalidation for cache " + cacheName, e);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.cnewbywa.item.configuration;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.cnewbywa.item.datasource.ConcurrencyLimitingDataSource;
+import com.cnewbywa.item.datasource.ReadYourWritesTracker;
+import com.cnewbywa.item.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class DataSourceConfig {
+
+	@Value("${application.datasource.replica-urls}")
+	private List<String> replicaUrls;
+	
+	@Value("${application.datasource.read-your-writes-channel}")
+	private String readYourWritesChannel;
+	
+	@Value("${application.datasource.replica.max-lag}")
+	private long maxLag;
+	
+	@Value("${application.datasource.replica.connection-timeout}")
+	private long replicaConnectionTimeout;
+	
+	@Value("${application.datasource.limiter.min-limit}")
+	private int limiterMinLimit;
+	
+	@Value("${application.datasource.limiter.latency-tolerance}")
+	private double limiterLatencyTolerance;
+	
+	@Value("${application.datasource.limiter.max-queue-time}")
+	private long limiterMaxQueueTime;
+	
+	@Value("${application.datasource.limiter.retry-after}")
+	private long limiterRetryAfter;
+	
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+	
+	@Bean
+	ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties, Environment environment,
+			ReadYourWritesTracker readYourWritesTracker, MeterRegistry meterRegistry) {
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		
+		for (int i = 0; i < replicaUrls.size(); i++) {
+			String name = "replica-" + i;
+			
+			// the replica pools have the same settings as the primary pool
+			HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(replicaUrls.get(i)).build();
+			Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+			
+			replica.setPoolName(name);
+			replica.setReadOnly(true);
+			replica.setConnectionTimeout(Math.min(replica.getConnectionTimeout(), replicaConnectionTimeout));
+			// a replica that is not available at startup is used once the health check finds it
+			replica.setInitializationFailTimeout(-1);
+			replica.setMetricRegistry(meterRegistry);
+			
+			replicas.put(name, limit(replica, name, meterRegistry));
+		}
+		
+		return new ReplicaRoutingDataSource(limit(primaryDataSource, "primary", meterRegistry), replicas, maxLag, readYourWritesTracker, meterRegistry);
+	}
+	
+	@Bean
+	RedisMessageListenerContainer readYourWritesListenerContainer(RedisConnectionFactory redisConnectionFactory, ReadYourWritesTracker readYourWritesTracker) {
+		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(redisConnectionFactory);
+		container.addMessageListener(readYourWritesTracker, new ChannelTopic(readYourWritesChannel));
+		
+		return container;
+	}
+	
+	/**
+	 * The data source of the application. The connection is fetched on first use, after the transaction has been marked read-only,
+	 * so that read-only transactions can be routed to the replicas.
+	 */
+	@Bean
+	@Primary
+	DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+		return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+	}
+	
+	/**
+	 * Limits the connections in use to at most the size of the pool. Requests over the limit wait in the limiter, where they
+	 * can be rejected after a short while, instead of waiting in the pool until the connection timeout. Each pool has its own
+	 * limiter, so that the replicas and the primary do not share one limit.
+	 */
+	private ConcurrencyLimitingDataSource limit(HikariDataSource pool, String name, MeterRegistry meterRegistry) {
+		return new ConcurrencyLimitingDataSource(pool, name, limiterMinLimit, pool.getMaximumPoolSize(), limiterLatencyTolerance, limiterMaxQueueTime,
+				limiterRetryAfter, meterRegistry);
+	}
+}
@@ -0,0 +1,46 @@
+package com.cnewbywa.item.configuration;
+
+import java.util.List;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.cnewbywa.item.metrics.QueryMetricsInterceptor;
+import com.cnewbywa.item.metrics.QueryStatsIntegrator;
+import com.cnewbywa.item.metrics.QueryStatsSessionListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class JpaMetricsConfig implements WebMvcConfigurer {
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Value("${application.metrics.hibernate-statistics}")
+	private boolean hibernateStatistics;
+	
+	@Bean
+	HibernatePropertiesCustomizer queryStatsCustomizer() {
+		IntegratorProvider integratorProvider = () -> List.of(new QueryStatsIntegrator());
+		
+		return properties -> {
+			properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, QueryStatsSessionListener.class.getName());
+			properties.put("hibernate.integrator_provider", integratorProvider);
+			// the per request counts do not need the statistics, which have a cost on every statement
+			properties.put(AvailableSettings.GENERATE_STATISTICS, hibernateStatistics);
+		};
+	}
+	
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new QueryMetricsInterceptor(meterRegistry));
+	}
+}
@@ -1,34 +1,141 @@
 package com.cnewbywa.item.configuration;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+import com.cnewbywa.item.cache.CompactCacheSerializer;
+import com.cnewbywa.item.cache.RedisBatchCache;
+import com.cnewbywa.item.cache.SerializedResponseSerializer;
+import com.cnewbywa.item.cache.SingleFlightCache;
+import com.cnewbywa.item.cache.TimedCache;
+import com.cnewbywa.item.cache.TwoTierCacheManager;
+import com.cnewbywa.item.model.ItemDetailedResponseDto;
+import com.cnewbywa.item.model.ItemListResponseDto;
+import com.cnewbywa.item.model.ItemScrollResponseDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableCaching
 public class RedisCacheConfig {
 
+	// value types of the caches that can be stored in the compact format
+	private static final Map<String, Class<?>> CACHE_VALUE_TYPES = Map.of(
+			"item", ItemDetailedResponseDto.class,
+			"items", ItemListResponseDto.class,
+			"search", ItemScrollResponseDto.class);
+	
 	@Value("${spring.cache.redis.time-to-live}")
     private long ttl;
 	
+	@Value("${application.cache.items.time-to-live}")
+	private long listTtl;
+	
+	@Value("${application.cache.local.cache-names}")
+	private String[] localCacheNames;
+	
+	@Value("${application.cache.local.maximum-size}")
+	private long localMaximumSize;
+	
+	@Value("${application.cache.local.time-to-live}")
+	private long localTtl;
+	
+	@Value("${application.cache.invalidation.channel}")
+	private String invalidationChannel;
+	
+	@Value("${application.cache.compact.cache-names}")
+	private String[] compactCacheNames;
+	
+	@Value("${application.cache.compact.compression-threshold}")
+	private int compressionThreshold;
+	
+	@Value("${application.cache.single-flight.lock-timeout}")
+	private long lockTimeout;
+	
+	@Value("${application.cache.single-flight.early-refresh-beta}")
+	private double earlyRefreshBeta;
+	
 	@Bean
-    RedisCacheConfiguration defaultCacheConfig(ObjectMapper objectMapper) {
-		ObjectMapper newObjectMapper = new ObjectMapper();
-		newObjectMapper.activateDefaultTyping(objectMapper.getPolymorphicTypeValidator(), ObjectMapper.DefaultTyping.NON_FINAL);
-		newObjectMapper.registerModule(new JavaTimeModule());
-		
+	GenericJackson2JsonRedisSerializer cacheValueSerializer(ObjectMapper objectMapper) {
+		return new GenericJackson2JsonRedisSerializer(createCacheObjectMapper(objectMapper.getPolymorphicTypeValidator()));
+	}
+	
+	@Bean
+    RedisCacheConfiguration defaultCacheConfig(GenericJackson2JsonRedisSerializer cacheValueSerializer) {
         return RedisCacheConfiguration.defaultCacheConfig()
         		.entryTtl(Duration.ofMillis(ttl))
-        		.serializeValuesWith(SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer(newObjectMapper)));
+        		.serializeValuesWith(SerializationPair.fromSerializer(cacheValueSerializer));
     }
 	
+	@Bean
+	TwoTierCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, RedisCacheConfiguration defaultCacheConfig,
+			GenericJackson2JsonRedisSerializer cacheValueSerializer, StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry) {
+		RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+				.cacheDefaults(defaultCacheConfig)
+				.withCacheConfiguration("item", withValueSerializer(defaultCacheConfig, cacheValueSerializer, "item"))
+				.withCacheConfiguration("items", withValueSerializer(defaultCacheConfig, cacheValueSerializer, "items").entryTtl(Duration.ofMillis(listTtl)))
+				.withCacheConfiguration("search", withValueSerializer(defaultCacheConfig, cacheValueSerializer, "search"))
+				.withCacheConfiguration("item-response", defaultCacheConfig.serializeValuesWith(SerializationPair.fromSerializer(new SerializedResponseSerializer(cacheValueSerializer))))
+				.build();
+		redisCacheManager.afterPropertiesSet();
+		
+		Caffeine<Object, Object> localCacheBuilder = Caffeine.newBuilder()
+				.maximumSize(localMaximumSize)
+				.expireAfterWrite(Duration.ofMillis(localTtl));
+		
+		UnaryOperator<Cache> remoteCacheDecorator = cache -> new SingleFlightCache(new TimedCache(withBatchSupport(cache, redisConnectionFactory), meterRegistry), Duration.ofMillis("items".equals(cache.getName()) ? listTtl : ttl),
+				stringRedisTemplate, Duration.ofMillis(lockTimeout), earlyRefreshBeta, meterRegistry);
+		
+		return new TwoTierCacheManager(redisCacheManager, remoteCacheDecorator, Set.of(localCacheNames), localCacheBuilder, stringRedisTemplate,
+				invalidationChannel, meterRegistry);
+	}
+	
+	@Bean
+	RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory, TwoTierCacheManager cacheManager) {
+		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(redisConnectionFactory);
+		container.addMessageListener(cacheManager, new ChannelTopic(invalidationChannel));
+		
+		return container;
+	}
+	
+	private Cache withBatchSupport(Cache cache, RedisConnectionFactory redisConnectionFactory) {
+		return cache instanceof RedisCache redisCache ? new RedisBatchCache(redisCache, redisConnectionFactory) : cache;
+	}
+	
+	private RedisCacheConfiguration withValueSerializer(RedisCacheConfiguration defaultCacheConfig, RedisSerializer<Object> jsonSerializer, String cacheName) {
+		// both formats are always read, the compact format is written only for the caches it has been enabled for
+		return defaultCacheConfig.serializeValuesWith(SerializationPair.fromSerializer(
+				new CompactCacheSerializer<>(CACHE_VALUE_TYPES.get(cacheName), jsonSerializer, compressionThreshold, Set.of(compactCacheNames).contains(cacheName))));
+	}
+	
+	static ObjectMapper createCacheObjectMapper(PolymorphicTypeValidator typeValidator) {
+		ObjectMapper newObjectMapper = new ObjectMapper();
+		newObjectMapper.activateDefaultTyping(typeValidator, ObjectMapper.DefaultTyping.NON_FINAL);
+		newObjectMapper.registerModule(new JavaTimeModule());
+		
+		return newObjectMapper;
+	}
 }
@@ -1,26 +1,35 @@
 package com.cnewbywa.item.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import com.cnewbywa.item.metrics.TimedJwtDecoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+	@Value("${application.security.actuator-authority}")
+	private String actuatorAuthority;
+	
 	@Bean
-	SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+	SecurityFilterChain filterChain(HttpSecurity http, JwtDecoder jwtDecoder, MeterRegistry meterRegistry) throws Exception {
 		http
 			.requiresChannel(channel -> channel.anyRequest().requiresSecure())
 			.authorizeHttpRequests(authorize -> authorize
-					.requestMatchers(HttpMethod.GET, "/", "/user/**").permitAll()
+					.requestMatchers(HttpMethod.GET, "/", "/scroll", "/search", "/search/suggest", "/user/**").permitAll()
 					.requestMatchers("/actuator/health", "/v3/api-docs/**", "/swagger-ui/**", "/webjars/swagger-ui/**").permitAll()
+					.requestMatchers("/actuator/**").hasAuthority(actuatorAuthority)
 					.anyRequest().authenticated())
-			.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer.jwt(Customizer.withDefaults()));
+			.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer.jwt(jwt -> jwt.decoder(new TimedJwtDecoder(jwtDecoder, meterRegistry))));
 		
 		return http.build();
 	}
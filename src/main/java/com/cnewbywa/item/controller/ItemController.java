@@ -1,9 +1,12 @@
 package com.cnewbywa.item.controller;
 
 import java.net.URI;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,8 +14,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -21,13 +28,27 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import com.cnewbywa.item.error.PreconditionFailedException;
+import com.cnewbywa.item.model.CountMode;
+import com.cnewbywa.item.model.ItemBatchResultDto;
+import com.cnewbywa.item.model.ItemBulkUpdateDto;
 import com.cnewbywa.item.model.ItemDetailedResponseDto;
 import com.cnewbywa.item.model.ItemDto;
 import com.cnewbywa.item.model.ItemListResponseDto;
+import com.cnewbywa.item.model.ItemScrollResponseDto;
+import com.cnewbywa.item.model.ItemSearchQuery;
+import com.cnewbywa.item.model.SerializedItemResponse;
+import com.cnewbywa.item.service.CacheWarmer;
+import com.cnewbywa.item.service.IdempotencyService;
+import com.cnewbywa.item.service.ItemResponseService;
 import com.cnewbywa.item.service.ItemService;
 
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.annotation.Nonnull;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 
 @RestController
@@ -37,58 +58,215 @@ public class ItemController {
 	@Autowired
 	private ItemService itemService;
 	
+	@Autowired
+	private IdempotencyService idempotencyService;
+	
+	@Autowired
+	private ItemResponseService itemResponseService;
+	
+	@Autowired
+	private CacheWarmer cacheWarmer;
+	
+	@Value("${application.cache.response.enabled}")
+	private boolean responseCacheEnabled;
+	
+	@Value("${application.export.timeout}")
+	private long exportTimeout;
+	
 	@GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
 	@ResponseStatus(HttpStatus.OK)
 	@SecurityRequirement(name = "bearerAuth")
-	public ResponseEntity<ItemDetailedResponseDto> getIrem(@PathVariable UUID id) {
-		return ResponseEntity.ok(itemService.getItem(id));
+	@ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = ItemDetailedResponseDto.class)))
+	public ResponseEntity<?> getIrem(@PathVariable UUID id) {
+		if (responseCacheEnabled) {
+			SerializedItemResponse response = itemResponseService.getItem(id);
+			
+			// recorded only when found, so that lookups of missing items are not warmed up
+			cacheWarmer.recordItem(id);
+			
+			// the byte array is written to the response as it is, without Jackson
+			return ResponseEntity.ok()
+					.contentType(MediaType.APPLICATION_JSON)
+					.headers(headers -> setETag(headers, response.eTag()))
+					.body(response.body());
+		}
+		
+		ItemDetailedResponseDto item = itemService.getItem(id);
+		
+		cacheWarmer.recordItem(id);
+		
+		// a matching If-None-Match header is answered with 304 by Spring MVC without writing the body
+		return ResponseEntity.ok()
+				.headers(headers -> setETag(headers, item))
+				.body(item);
+	}
+	
+	@PostMapping(path = "/batch-get", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	@SecurityRequirement(name = "bearerAuth")
+	public ResponseEntity<List<ItemBatchResultDto>> getItemsByIds(@RequestBody @Nonnull List<UUID> ids) {
+		return ResponseEntity.ok(itemService.getItemsByIds(ids));
 	}
 	
 	@GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 	@ResponseStatus(HttpStatus.OK)
-	public ResponseEntity<ItemListResponseDto> getItems(Pageable pageable) {
-		return ResponseEntity.ok(itemService.getItems(pageable));
+	public ResponseEntity<ItemListResponseDto> getItems(Pageable pageable, @RequestParam(name = "count", defaultValue = "EXACT") CountMode countMode, WebRequest request) {
+		ResponseEntity<ItemListResponseDto> response = getList(request, () -> itemService.getItems(pageable, countMode));
+		
+		// recorded only after the list has been read, so that failed requests do not make keys hot
+		cacheWarmer.recordList(pageable, countMode);
+		
+		return response;
 	}
 	
 	@GetMapping(path = "/user/{userId}", produces = MediaType.APPLICATION_JSON_VALUE)
 	@ResponseStatus(HttpStatus.OK)
-	public ResponseEntity<ItemListResponseDto> getItemsByUser(@PathVariable String userId, Pageable pageable) {
-		return ResponseEntity.ok(itemService.getItemsByUser(userId, pageable));
+	public ResponseEntity<ItemListResponseDto> getItemsByUser(@PathVariable String userId, Pageable pageable, @RequestParam(name = "count", defaultValue = "EXACT") CountMode countMode,
+			WebRequest request) {
+		ResponseEntity<ItemListResponseDto> response = getList(request, () -> itemService.getItemsByUser(userId, pageable, countMode));
+		
+		cacheWarmer.recordUserList(userId, pageable, countMode);
+		
+		return response;
+	}
+	
+	@GetMapping(path = "/scroll", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public ResponseEntity<ItemScrollResponseDto> scrollItems(@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size, WebRequest request) {
+		return getList(request, () -> itemService.scrollItems(cursor, size));
+	}
+	
+	@GetMapping(path = "/user/{userId}/scroll", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public ResponseEntity<ItemScrollResponseDto> scrollItemsByUser(@PathVariable String userId, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size,
+			WebRequest request) {
+		return getList(request, () -> itemService.scrollItemsByUser(userId, cursor, size));
+	}
+	
+	@GetMapping(path = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public ResponseEntity<ItemScrollResponseDto> searchItems(@RequestParam(name = "q") String query, @RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "20") int size, WebRequest request) {
+		ItemSearchQuery searchQuery = ItemSearchQuery.of(query);
+		
+		return getList(request, () -> itemService.searchItems(searchQuery, cursor, size));
+	}
+	
+	@GetMapping(path = "/search/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public ResponseEntity<ItemScrollResponseDto> suggestItems(@RequestParam String prefix, @RequestParam(defaultValue = "10") int size, WebRequest request) {
+		ItemSearchQuery searchPrefix = ItemSearchQuery.of(prefix);
+		
+		return getList(request, () -> itemService.suggestItems(searchPrefix, size));
 	}
 	
 	@GetMapping(path = "/user", produces = MediaType.APPLICATION_JSON_VALUE)
 	@ResponseStatus(HttpStatus.OK)
 	@SecurityRequirement(name = "bearerAuth")
-	public ResponseEntity<ItemListResponseDto> getItemsByLoggedInUser(Authentication authentication, Pageable pageable) {
-		return ResponseEntity.ok(itemService.getItemsByUser(getLoggedInUser(authentication), pageable));
+	public ResponseEntity<ItemListResponseDto> getItemsByLoggedInUser(Authentication authentication, Pageable pageable, @RequestParam(name = "count", defaultValue = "EXACT") CountMode countMode,
+			WebRequest request) {
+		String user = getLoggedInUser(authentication);
+		
+		ResponseEntity<ItemListResponseDto> response = getList(request, () -> itemService.getItemsByUser(user, pageable, countMode));
+		
+		cacheWarmer.recordUserList(user, pageable, countMode);
+		
+		return response;
+	}
+	
+	@GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	@SecurityRequirement(name = "bearerAuth")
+	public WebAsyncTask<Void> exportItems(@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+			HttpServletResponse response) {
+		boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+		
+		response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+		
+		if (gzip) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		
+		// the export can take much longer than other requests, so it has its own timeout
+		return new WebAsyncTask<>(exportTimeout, () -> {
+			itemService.exportItems(response.getOutputStream(), gzip);
+			
+			return null;
+		});
 	}
 	
 	@PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
 	@ResponseStatus(HttpStatus.CREATED)
 	@SecurityRequirement(name = "bearerAuth")
-	public ResponseEntity<ItemDetailedResponseDto> addItem(Authentication authentication, @RequestBody @Nonnull ItemDto item) {
-		ItemDetailedResponseDto dto = itemService.addItem(item, getLoggedInUser(authentication));
+	public ResponseEntity<ItemDetailedResponseDto> addItem(Authentication authentication, @RequestBody @Nonnull ItemDto item,
+			@RequestHeader(name = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+		String user = getLoggedInUser(authentication);
 		
-		HttpHeaders responseHeaders = new HttpHeaders();
-	    responseHeaders.set(HttpHeaders.LOCATION, createAddLocation(dto.getId()).toString());
-		
-		return new ResponseEntity<>(dto, responseHeaders, HttpStatus.CREATED);
+		return idempotent(idempotencyKey, user, "POST", item, ItemDetailedResponseDto.class, () -> {
+			ItemDetailedResponseDto dto = itemService.addItem(item, user);
+			
+			HttpHeaders responseHeaders = new HttpHeaders();
+		    responseHeaders.set(HttpHeaders.LOCATION, createAddLocation(dto.getId()).toString());
+		    setETag(responseHeaders, dto);
+			
+			return new ResponseEntity<>(dto, responseHeaders, HttpStatus.CREATED);
+		});
 	}
 	
 	@PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
 	@ResponseStatus(HttpStatus.OK)
 	@SecurityRequirement(name = "bearerAuth")
-	public ResponseEntity<ItemDetailedResponseDto> updateItem(Authentication authentication, @PathVariable UUID id, @RequestBody @Nonnull ItemDto item) {
-		return ResponseEntity.ok()
-				.headers(headers -> headers.setLocation(createUpdateLocation()))
-				.body(itemService.updateItem(id, item, getLoggedInUser(authentication)));
+	public ResponseEntity<ItemDetailedResponseDto> updateItem(Authentication authentication, @PathVariable UUID id, @RequestBody @Nonnull ItemDto item,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@RequestHeader(name = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+		String user = getLoggedInUser(authentication);
+		Long expectedVersion = getExpectedVersion(ifMatch);
+		
+		return idempotent(idempotencyKey, user, "PUT /" + id + " " + expectedVersion, item, ItemDetailedResponseDto.class, () -> {
+			ItemDetailedResponseDto dto = itemService.updateItem(id, item, user, expectedVersion);
+			
+			return ResponseEntity.ok()
+					.headers(headers -> {
+						headers.setLocation(createUpdateLocation());
+						setETag(headers, dto);
+					})
+					.body(dto);
+		});
 	}
 	
 	@DeleteMapping(path = "/{id}")
 	@ResponseStatus(HttpStatus.NO_CONTENT)
 	@SecurityRequirement(name = "bearerAuth")
-	public void deleteItem(Authentication authentication, @PathVariable UUID id) {
-		itemService.deleteItem(id, getLoggedInUser(authentication));
+	public void deleteItem(Authentication authentication, @PathVariable UUID id,
+			@RequestHeader(name = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+		String user = getLoggedInUser(authentication);
+		
+		idempotent(idempotencyKey, user, "DELETE /" + id, null, Void.class, () -> {
+			itemService.deleteItem(id, user);
+			
+			return ResponseEntity.noContent().build();
+		});
+	}
+	
+	@PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.CREATED)
+	@SecurityRequirement(name = "bearerAuth")
+	public ResponseEntity<List<ItemDetailedResponseDto>> addItems(Authentication authentication, @RequestBody @Nonnull List<ItemDto> items) {
+		return new ResponseEntity<>(itemService.addItems(items, getLoggedInUser(authentication)), HttpStatus.CREATED);
+	}
+	
+	@PutMapping(path = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	@SecurityRequirement(name = "bearerAuth")
+	public ResponseEntity<List<ItemDetailedResponseDto>> updateItems(Authentication authentication, @RequestBody @Nonnull List<ItemBulkUpdateDto> items) {
+		return ResponseEntity.ok(itemService.updateItems(items, getLoggedInUser(authentication)));
+	}
+	
+	@PostMapping(path = "/bulk-delete", consumes = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	@SecurityRequirement(name = "bearerAuth")
+	public void deleteItems(Authentication authentication, @RequestBody @Nonnull List<UUID> ids) {
+		itemService.deleteItems(ids, getLoggedInUser(authentication));
 	}
 	
 	private String getLoggedInUser(Authentication authentication) {
@@ -101,6 +279,63 @@ public class ItemController {
 		return authentication.getName();
 	}
 	
+	/**
+	 * Run the write only once per idempotency key when the client has sent one
+	 */
+	private <T> ResponseEntity<T> idempotent(String idempotencyKey, String user, String request, Object requestBody, Class<T> bodyType, Supplier<ResponseEntity<T>> action) {
+		if (idempotencyKey == null) {
+			return action.get();
+		}
+		
+		return idempotencyService.execute(idempotencyKey, user, request, requestBody, bodyType, action);
+	}
+	
+	/**
+	 * Answer with 304 if the list version has not changed since the client got the response, without loading the list
+	 */
+	private <T> ResponseEntity<T> getList(WebRequest request, Supplier<T> loader) {
+		// the list version changes with every write, so the weak ETag is the same for equal lists only
+		String etag = "W/\"" + itemService.getListVersion() + "\"";
+		
+		if (request.checkNotModified(etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+		}
+		
+		return ResponseEntity.ok()
+				.eTag(etag)
+				.body(loader.get());
+	}
+	
+	private void setETag(HttpHeaders headers, ItemDetailedResponseDto item) {
+		setETag(headers, SerializedItemResponse.eTag(item.getVersion()));
+	}
+	
+	private void setETag(HttpHeaders headers, String eTag) {
+		// entries cached before the version was added to the response have no version
+		if (eTag != null) {
+			headers.setETag(eTag);
+		}
+	}
+	
+	private Long getExpectedVersion(String ifMatch) {
+		if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+			return null;
+		}
+		
+		String etag = ifMatch.trim();
+		
+		// If-Match uses the strong comparison, so weak or unknown ETags never match
+		if (etag.length() < 3 || !etag.startsWith("\"") || !etag.endsWith("\"")) {
+			throw new PreconditionFailedException("Invalid ETag");
+		}
+		
+		try {
+			return Long.valueOf(etag.substring(1, etag.length() - 1));
+		} catch (NumberFormatException e) {
+			throw new PreconditionFailedException("Invalid ETag");
+		}
+	}
+	
 	private URI createAddLocation(UUID id) {
 		return ServletUriComponentsBuilder
                 .fromCurrentRequest()
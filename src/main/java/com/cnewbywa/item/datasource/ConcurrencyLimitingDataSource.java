@@ -0,0 +1,368 @@
+package com.cnewbywa.item.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cnewbywa.item.error.ConcurrencyLimitExceededException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Data source that limits the amount of connections in use at the same time, in front of one connection pool. The limit adapts
+ * to the database with AIMD driven by how long the connections are held, which grows with the query times when the database is
+ * loaded. A smoothed recent hold time is compared to a baseline that follows the hold times slowly: the limit is multiplied by the
+ * backoff ratio when the recent hold time is over the baseline times the latency tolerance, and increased by one otherwise while the
+ * limit is in use. A single long hold time counts only up to twice the tolerated time, so that one slow caller does not lower the limit.
+ * <p>
+ * Callers over the limit wait (parking virtual threads instead of pinning them in the pool) and are rejected with
+ * {@link ConcurrencyLimitExceededException} when they would wait longer than the maximum queue time. Transactions that hold their
+ * connection for minutes, like the export, are exempted with {@link #exemptCurrentTransaction()}, so that they do not take a
+ * permit for the whole time.
+ */
+@Slf4j
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+	static final String LIMIT_METRIC_NAME = "item.datasource.limiter.limit";
+	static final String IN_FLIGHT_METRIC_NAME = "item.datasource.limiter.in-flight";
+	static final String REJECTED_METRIC_NAME = "item.datasource.limiter.rejected";
+	
+	private static final double BACKOFF_RATIO = 0.9;
+	
+	// a burst of slow connections is one signal, so the limit is decreased at most once per interval
+	private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	
+	// weight of a new hold time in the recent hold time
+	private static final double RECENT_SMOOTHING = 0.1;
+	
+	// the baseline is updated at most once per interval, so that it follows a changed workload in about a minute whatever the
+	// request rate, but does not follow a load peak
+	private static final double BASELINE_SMOOTHING = 0.02;
+	private static final long BASELINE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	
+	// shorter hold times are noise, not a lower database latency
+	private static final long MIN_HOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	// a single hold time counts as at most this many times the tolerated hold time
+	private static final double MAX_HOLD_RATIO = 2.0;
+	
+	private static final Object EXEMPT = ConcurrencyLimitingDataSource.class.getName() + ".EXEMPT";
+	
+	private final int minLimit;
+	
+	private final int maxLimit;
+	
+	private final double latencyTolerance;
+	
+	private final long maxQueueTimeNanos;
+	
+	private final long retryAfter;
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	private final Condition permitReleased = lock.newCondition();
+	
+	private int limit;
+	
+	private int inFlight;
+	
+	private long lastDecrease = System.nanoTime() - DECREASE_INTERVAL_NANOS;
+	
+	// no hold times yet
+	private double baselineNanos = -1;
+	
+	private double recentNanos;
+	
+	private long lastBaselineUpdate;
+	
+	private final Counter rejections;
+	
+	/**
+	 * @param name name of the target in the metrics
+	 * @param maxLimit upper bound of the limit, should not be larger than the connection pool of the target
+	 * @param latencyTolerance how many times the baseline hold time the recent hold time can be before the limit is decreased
+	 * @param maxQueueTime milliseconds a caller can wait for a connection before it is rejected
+	 * @param retryAfter seconds after which rejected callers should try again
+	 */
+	public ConcurrencyLimitingDataSource(DataSource target, String name, int minLimit, int maxLimit, double latencyTolerance, long maxQueueTime, long retryAfter,
+			MeterRegistry meterRegistry) {
+		super(target);
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyTolerance = latencyTolerance;
+		this.maxQueueTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueTime);
+		this.retryAfter = retryAfter;
+		this.limit = maxLimit;
+		this.rejections = Counter.builder(REJECTED_METRIC_NAME).tag("target", name).register(meterRegistry);
+		
+		Gauge.builder(LIMIT_METRIC_NAME, this, ConcurrencyLimitingDataSource::getLimit).tag("target", name).register(meterRegistry);
+		Gauge.builder(IN_FLIGHT_METRIC_NAME, this, ConcurrencyLimitingDataSource::getInFlight).tag("target", name).register(meterRegistry);
+	}
+	
+	/**
+	 * Let the current transaction get its connections without the limit. Must be called before the first query.
+	 */
+	public static void exemptCurrentTransaction() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(EXEMPT)) {
+			return;
+		}
+		
+		TransactionSynchronizationManager.bindResource(EXEMPT, Boolean.TRUE);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(EXEMPT);
+			}
+		});
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (TransactionSynchronizationManager.hasResource(EXEMPT)) {
+			return obtainTargetDataSource().getConnection();
+		}
+		
+		acquire();
+		
+		return limit(() -> obtainTargetDataSource().getConnection());
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		if (TransactionSynchronizationManager.hasResource(EXEMPT)) {
+			return obtainTargetDataSource().getConnection(username, password);
+		}
+		
+		acquire();
+		
+		return limit(() -> obtainTargetDataSource().getConnection(username, password));
+	}
+	
+	@Override
+	public void close() throws Exception {
+		if (getTargetDataSource() instanceof AutoCloseable closeable) {
+			closeable.close();
+		}
+	}
+	
+	int getLimit() {
+		lock.lock();
+		
+		try {
+			return limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	int getInFlight() {
+		lock.lock();
+		
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void acquire() {
+		long deadline = System.nanoTime() + maxQueueTimeNanos;
+		
+		lock.lock();
+		
+		try {
+			while (inFlight >= limit) {
+				long remaining = deadline - System.nanoTime();
+				
+				if (remaining <= 0) {
+					reject();
+				}
+				
+				permitReleased.awaitNanos(remaining);
+			}
+			
+			inFlight++;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			throw new ConcurrencyLimitExceededException("Interrupted while waiting for a database connection", retryAfter);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	// called with the lock held, a rejection does not lower the limit as the caller never reached the pool
+	private void reject() {
+		rejections.increment();
+		
+		throw new ConcurrencyLimitExceededException("Too many concurrent database requests", retryAfter);
+	}
+	
+	private Connection limit(ConnectionSupplier supplier) throws SQLException {
+		Connection connection;
+		
+		try {
+			connection = supplier.get();
+		} catch (SQLException | RuntimeException e) {
+			release();
+			
+			throw e;
+		}
+		
+		return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(), new Class<?>[] { ConnectionProxy.class },
+				new LimitedConnectionInvocationHandler(connection));
+	}
+	
+	private void release() {
+		lock.lock();
+		
+		try {
+			inFlight--;
+			
+			permitReleased.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	// the time waited in the limiter is not counted, it grows with a lower limit and would keep lowering it
+	private void release(long holdNanos) {
+		lock.lock();
+		
+		try {
+			adjustLimit(holdNanos);
+			
+			inFlight--;
+			
+			permitReleased.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	// called with the lock held, before the released connection is taken out of the connections in flight
+	private void adjustLimit(long holdNanos) {
+		long now = System.nanoTime();
+		
+		if (baselineNanos < 0) {
+			baselineNanos = Math.max(holdNanos, MIN_HOLD_NANOS);
+			recentNanos = baselineNanos;
+			lastBaselineUpdate = now;
+			
+			return;
+		}
+		
+		double tolerated = baselineNanos * latencyTolerance;
+		double sample = Math.min(Math.max(holdNanos, MIN_HOLD_NANOS), tolerated * MAX_HOLD_RATIO);
+		
+		recentNanos += RECENT_SMOOTHING * (sample - recentNanos);
+		
+		if (now - lastBaselineUpdate >= BASELINE_INTERVAL_NANOS) {
+			baselineNanos += BASELINE_SMOOTHING * (recentNanos - baselineNanos);
+			lastBaselineUpdate = now;
+		}
+		
+		if (recentNanos > tolerated) {
+			decreaseLimit();
+		} else if (inFlight * 2 >= limit && limit < maxLimit) {
+			// the limit is raised only when it is actually used, so that it does not grow while the load is low
+			limit++;
+		}
+	}
+	
+	// called with the lock held
+	private void decreaseLimit() {
+		long now = System.nanoTime();
+		
+		if (now - lastDecrease < DECREASE_INTERVAL_NANOS) {
+			return;
+		}
+		
+		lastDecrease = now;
+		
+		int newLimit = Math.max(minLimit, (int) (limit * BACKOFF_RATIO));
+		
+		if (newLimit < limit) {
+			log.warn("Decreasing the database concurrency limit from {} to {}, recent connection hold time {} ms, baseline {} ms", limit, newLimit,
+					TimeUnit.NANOSECONDS.toMillis((long) recentNanos), TimeUnit.NANOSECONDS.toMillis((long) baselineNanos));
+			
+			limit = newLimit;
+		}
+	}
+	
+	@FunctionalInterface
+	private interface ConnectionSupplier {
+	
+		Connection get() throws SQLException;
+	}
+	
+	/**
+	 * Releases the permit when the connection is closed, with the time the connection has been held
+	 */
+	private class LimitedConnectionInvocationHandler implements InvocationHandler {
+	
+		private final Connection target;
+		
+		private final AtomicBoolean closed = new AtomicBoolean();
+		
+		private final long acquired = System.nanoTime();
+		
+		LimitedConnectionInvocationHandler(Connection target) {
+			this.target = target;
+		}
+		
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "getTargetConnection":
+					return target;
+				case "isClosed":
+					if (closed.get()) {
+						return true;
+					}
+					break;
+				case "close":
+					if (!closed.compareAndSet(false, true)) {
+						return null;
+					}
+					
+					try {
+						target.close();
+					} finally {
+						release(System.nanoTime() - acquired);
+					}
+					
+					return null;
+				default:
+					break;
+			}
+			
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+}
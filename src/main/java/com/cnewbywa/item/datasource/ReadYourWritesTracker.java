@@ -0,0 +1,132 @@
+package com.cnewbywa.item.datasource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps track of the writes made within the read-your-writes window, when the replicas may not have them yet. The reads
+ * of a user who has written go to the primary, so that the user sees the own writes. Reads whose results are put to the
+ * shared caches go to the primary after a write of any user, so that an entry loaded from a lagging replica is not served
+ * to everyone until it expires.
+ * <p>
+ * The writes are published to a Redis channel and every node keeps the windows in memory, so checking them does not need
+ * a Redis call per connection.
+ */
+@Component
+@Slf4j
+public class ReadYourWritesTracker implements MessageListener {
+
+	private static final Object CACHED_READ = ReadYourWritesTracker.class.getName() + ".CACHED_READ";
+	
+	@Value("${application.datasource.replica-urls}")
+	private List<String> replicaUrls;
+	
+	@Value("${application.datasource.read-your-writes-window}")
+	private long window;
+	
+	@Value("${application.datasource.read-your-writes-channel}")
+	private String channel;
+	
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+	
+	private Cache<String, Boolean> recentWriters;
+	
+	// the writes made before the startup are not known, so the startup counts as a write
+	private volatile long lastWrite = System.nanoTime();
+	
+	@PostConstruct
+	void init() {
+		recentWriters = Caffeine.newBuilder().expireAfterWrite(Duration.ofMillis(window)).build();
+	}
+	
+	/**
+	 * Start the window of the user after the current transaction has been committed
+	 */
+	public void recordWrite(String user) {
+		// without replicas every read goes to the primary anyway
+		if (replicaUrls.isEmpty() || user == null) {
+			return;
+		}
+		
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					publishWrite(user);
+				}
+			});
+		} else {
+			publishWrite(user);
+		}
+	}
+	
+	/**
+	 * Mark the current transaction as one whose result is put to the shared caches. Must be called before the first query.
+	 */
+	public void markCachedRead() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(CACHED_READ)) {
+			return;
+		}
+		
+		TransactionSynchronizationManager.bindResource(CACHED_READ, Boolean.TRUE);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(CACHED_READ);
+			}
+		});
+	}
+	
+	/**
+	 * Check whether the current transaction must read from the primary
+	 */
+	public boolean requiresPrimary() {
+		if (TransactionSynchronizationManager.hasResource(CACHED_READ) && System.nanoTime() - lastWrite < Duration.ofMillis(window).toNanos()) {
+			return true;
+		}
+		
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		
+		return authentication != null && authentication.getName() != null && recentWriters.getIfPresent(authentication.getName()) != null;
+	}
+	
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		record(new String(message.getBody(), StandardCharsets.UTF_8));
+	}
+	
+	private void publishWrite(String user) {
+		// recorded right away, as the message reaches this node only after a while
+		record(user);
+		
+		try {
+			redisTemplate.convertAndSend(channel, user);
+		} catch (RuntimeException e) {
+			log.error("Error publishing the write of user " + user, e);
+		}
+	}
+	
+	private void record(String user) {
+		lastWrite = System.nanoTime();
+		recentWriters.put(user, Boolean.TRUE);
+	}
+}
@@ -0,0 +1,169 @@
+package com.cnewbywa.item.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Data source that sends read-only transactions to the read replicas and everything else to the primary. The replicas are
+ * used in turns, and a replica is skipped while it cannot be reached or lags behind the primary by more than the maximum lag.
+ * Transactions of a user who has just written, and transactions loading the shared caches right after a write, go to the primary
+ * (see {@link ReadYourWritesTracker}).
+ * <p>
+ * The read-only flag of the transaction is known only after the transaction has started, so this data source must be used
+ * through a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+	static final String ROUTING_METRIC_NAME = "item.datasource.routing";
+	static final String HEALTHY_REPLICAS_METRIC_NAME = "item.datasource.replicas.healthy";
+	
+	// a replica that has replayed all received WAL is up to date even if the last replayed transaction is old
+	private static final String LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+			+ "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+	
+	private final DataSource primary;
+	
+	private final Map<String, DataSource> replicas;
+	
+	private final long maxLag;
+	
+	private final ReadYourWritesTracker readYourWritesTracker;
+	
+	private final AtomicInteger nextReplica = new AtomicInteger();
+	
+	private volatile List<String> healthyReplicas = List.of();
+	
+	private final Counter primaryConnections;
+	private final Counter replicaConnections;
+	private final Counter failovers;
+	
+	public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long maxLag, ReadYourWritesTracker readYourWritesTracker,
+			MeterRegistry meterRegistry) {
+		this.primary = primary;
+		this.replicas = replicas;
+		this.maxLag = maxLag;
+		this.readYourWritesTracker = readYourWritesTracker;
+		this.primaryConnections = createCounter(meterRegistry, "primary");
+		this.replicaConnections = createCounter(meterRegistry, "replica");
+		this.failovers = createCounter(meterRegistry, "failover");
+		
+		Gauge.builder(HEALTHY_REPLICAS_METRIC_NAME, this, dataSource -> dataSource.healthyReplicas.size()).register(meterRegistry);
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		String replica = selectReplica();
+		
+		if (replica == null) {
+			primaryConnections.increment();
+			
+			return primary.getConnection();
+		}
+		
+		try {
+			Connection connection = replicas.get(replica).getConnection();
+			
+			replicaConnections.increment();
+			
+			return connection;
+		} catch (SQLException e) {
+			log.warn("Replica " + replica + " is not available, using the primary", e);
+			
+			markUnhealthy(replica);
+			failovers.increment();
+			
+			return primary.getConnection();
+		}
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		// the replica pools have the credentials of the application, so other credentials are used with the primary only
+		return primary.getConnection(username, password);
+	}
+	
+	/**
+	 * Check which replicas can be reached and are within the maximum lag
+	 */
+	@Scheduled(fixedDelayString = "${application.datasource.replica.health-check-interval}")
+	public void checkReplicas() {
+		if (replicas.isEmpty()) {
+			return;
+		}
+		
+		healthyReplicas = replicas.entrySet().stream()
+				.filter(replica -> isHealthy(replica.getKey(), replica.getValue()))
+				.map(Map.Entry::getKey)
+				.toList();
+	}
+	
+	@Override
+	public void close() throws Exception {
+		for (DataSource replica : replicas.values()) {
+			if (replica instanceof AutoCloseable closeable) {
+				closeable.close();
+			}
+		}
+	}
+	
+	private String selectReplica() {
+		List<String> replicasInUse = healthyReplicas;
+		
+		if (replicasInUse.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly() || readYourWritesTracker.requiresPrimary()) {
+			return null;
+		}
+		
+		return replicasInUse.get(Math.floorMod(nextReplica.getAndIncrement(), replicasInUse.size()));
+	}
+	
+	private boolean isHealthy(String name, DataSource replica) {
+		// the health check does not wait for a permit of the concurrency limiter
+		DataSource target = replica instanceof ConcurrencyLimitingDataSource limitingDataSource ? limitingDataSource.getTargetDataSource() : replica;
+		
+		try (Connection connection = target.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+			double lag = resultSet.next() ? resultSet.getDouble(1) : 0;
+			
+			if (lag > maxLag) {
+				log.warn("Replica {} lags {} ms behind the primary, not using it", name, Math.round(lag));
+				
+				return false;
+			}
+			
+			return true;
+		} catch (SQLException e) {
+			log.warn("Replica " + name + " is not available", e);
+			
+			return false;
+		}
+	}
+	
+	// the next health check adds the replica back when it is available again
+	private synchronized void markUnhealthy(String replica) {
+		healthyReplicas = healthyReplicas.stream().filter(name -> !name.equals(replica)).toList();
+	}
+	
+	private Counter createCounter(MeterRegistry meterRegistry, String target) {
+		return Counter.builder(ROUTING_METRIC_NAME)
+				.tag("target", target)
+				.register(meterRegistry);
+	}
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class BulkLimitExceededException extends RuntimeException {
+
+	private static final long serialVersionUID = -2675315902126147330L;
+
+	public BulkLimitExceededException(String message) {
+		super(message);
+	}
+}
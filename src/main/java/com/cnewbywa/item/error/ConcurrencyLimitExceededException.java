@@ -0,0 +1,19 @@
+package com.cnewbywa.item.error;
+
+import lombok.Getter;
+
+@Getter
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+	private static final long serialVersionUID = -2876035541094227306L;
+
+	/**
+	 * Seconds after which the request can be retried
+	 */
+	private final long retryAfter;
+	
+	public ConcurrencyLimitExceededException(String message, long retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class EventBacklogFullException extends RuntimeException {
+
+	private static final long serialVersionUID = 5230936172046811273L;
+
+	public EventBacklogFullException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+	private static final long serialVersionUID = 2790641358820419376L;
+
+	public IdempotencyKeyReusedException(String message) {
+		super(message);
+	}
+}
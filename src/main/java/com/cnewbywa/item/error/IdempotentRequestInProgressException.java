@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class IdempotentRequestInProgressException extends RuntimeException {
+
+	private static final long serialVersionUID = 6604128375920051742L;
+
+	public IdempotentRequestInProgressException(String message) {
+		super(message);
+	}
+}
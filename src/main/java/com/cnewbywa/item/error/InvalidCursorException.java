@@ -0,0 +1,14 @@
+package com.cnewbywa.item.error;
+
+public class InvalidCursorException extends RuntimeException {
+
+	private static final long serialVersionUID = 4781290318517362011L;
+
+	public InvalidCursorException(String message) {
+		super(message);
+	}
+	
+	public InvalidCursorException(String message, Throwable t) {
+		super(message, t);
+	}
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+	private static final long serialVersionUID = 8125403967214563018L;
+
+	public InvalidIdempotencyKeyException(String message) {
+		super(message);
+	}
+}
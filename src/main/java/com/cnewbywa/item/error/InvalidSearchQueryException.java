@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class InvalidSearchQueryException extends RuntimeException {
+
+	private static final long serialVersionUID = -6102873924485611830L;
+
+	public InvalidSearchQueryException(String message) {
+		super(message);
+	}
+}
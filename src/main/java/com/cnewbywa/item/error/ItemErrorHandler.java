@@ -4,8 +4,10 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
@@ -19,6 +21,45 @@ public class ItemErrorHandler {
 		log.error(re.getMessage(), re);
 	}
 	
+	@ExceptionHandler({ InvalidCursorException.class, InvalidSearchQueryException.class, BulkLimitExceededException.class, InvalidIdempotencyKeyException.class })
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+	public void handleBadRequestException(RuntimeException re) {
+		log.error(re.getMessage(), re);
+	}
+	
+	@ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+	public void handlePreconditionFailedException(RuntimeException re) {
+		log.error(re.getMessage(), re);
+	}
+	
+	@ExceptionHandler(IdempotentRequestInProgressException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+	public void handleIdempotentRequestInProgressException(RuntimeException re) {
+		log.error(re.getMessage(), re);
+	}
+	
+	@ExceptionHandler(IdempotencyKeyReusedException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+	public void handleIdempotencyKeyReusedException(RuntimeException re) {
+		log.error(re.getMessage(), re);
+	}
+	
+	@ExceptionHandler(EventBacklogFullException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	public void handleEventBacklogFullException(RuntimeException re) {
+		log.error(re.getMessage(), re);
+	}
+	
+	@ExceptionHandler(ConcurrencyLimitExceededException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	public void handleConcurrencyLimitExceededException(ConcurrencyLimitExceededException e, HttpServletResponse response) {
+		// requests are shed in bursts, so no stack traces
+		log.warn(e.getMessage());
+		
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter()));
+	}
+	
 	@ExceptionHandler(UsernameNotFoundException.class)
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
 	public void handleUserNotFoundException(RuntimeException re) {
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class PreconditionFailedException extends RuntimeException {
+
+	private static final long serialVersionUID = 4217946382051930465L;
+
+	public PreconditionFailedException(String message) {
+		super(message);
+	}
+}
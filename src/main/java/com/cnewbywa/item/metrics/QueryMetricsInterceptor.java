@@ -0,0 +1,84 @@
+package com.cnewbywa.item.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records the database work of each request, tagged by the endpoint. A high statement or entity load count
+ * for an endpoint usually points to an N+1 problem.
+ */
+public class QueryMetricsInterceptor implements AsyncHandlerInterceptor {
+
+	static final String STATEMENTS_METRIC = "db.request.statements";
+	static final String STATEMENT_TIME_METRIC = "db.request.statement.time";
+	static final String ENTITY_LOADS_METRIC = "db.request.entity.loads";
+	static final String FLUSHES_METRIC = "db.request.flushes";
+	
+	private final MeterRegistry meterRegistry;
+	
+	// meters by method and uri, registered on first use instead of on every request
+	private final ConcurrentMap<Tags, RequestMeters> meters = new ConcurrentHashMap<>();
+	
+	public QueryMetricsInterceptor(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+	
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		RequestQueryStats.start();
+		
+		return true;
+	}
+	
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		// the rest of the request is handled on another thread, so only the work done so far is recorded
+		record(request);
+	}
+	
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		record(request);
+	}
+	
+	private void record(HttpServletRequest request) {
+		RequestQueryStats stats = RequestQueryStats.stop();
+		
+		if (stats == null) {
+			return;
+		}
+		
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		
+		Tags tags = Tags.of("method", request.getMethod(), "uri", pattern != null ? pattern.toString() : "UNKNOWN");
+		
+		RequestMeters requestMeters = meters.computeIfAbsent(tags, this::createMeters);
+		
+		requestMeters.statements().record(stats.getStatements());
+		requestMeters.entityLoads().record(stats.getEntityLoads());
+		requestMeters.flushes().record(stats.getFlushes());
+		requestMeters.statementTime().record(stats.getStatementNanos(), TimeUnit.NANOSECONDS);
+	}
+	
+	private RequestMeters createMeters(Tags tags) {
+		return new RequestMeters(
+				DistributionSummary.builder(STATEMENTS_METRIC).tags(tags).register(meterRegistry),
+				DistributionSummary.builder(ENTITY_LOADS_METRIC).tags(tags).register(meterRegistry),
+				DistributionSummary.builder(FLUSHES_METRIC).tags(tags).register(meterRegistry),
+				Timer.builder(STATEMENT_TIME_METRIC).tags(tags).register(meterRegistry));
+	}
+	
+	private record RequestMeters(DistributionSummary statements, DistributionSummary entityLoads, DistributionSummary flushes, Timer statementTime) {
+	}
+}
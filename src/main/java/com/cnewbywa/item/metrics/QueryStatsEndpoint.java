@@ -0,0 +1,61 @@
+package com.cnewbywa.item.metrics;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Actuator endpoint that lists the database work per request for each endpoint, the endpoints with the most statements first.
+ */
+@Component
+@Endpoint(id = "queries")
+public class QueryStatsEndpoint {
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@ReadOperation
+	public Map<String, EndpointQueryStats> queries() {
+		Map<String, EndpointQueryStats> result = new LinkedHashMap<>();
+		
+		meterRegistry.find(QueryMetricsInterceptor.STATEMENTS_METRIC).summaries().stream()
+				.map(this::createStats)
+				.sorted(Comparator.comparingDouble(EndpointQueryStats::meanStatements).reversed())
+				.forEach(stats -> result.put(stats.endpoint(), stats));
+		
+		return result;
+	}
+	
+	private EndpointQueryStats createStats(DistributionSummary statements) {
+		String method = statements.getId().getTag("method");
+		String uri = statements.getId().getTag("uri");
+		
+		DistributionSummary entityLoads = meterRegistry.find(QueryMetricsInterceptor.ENTITY_LOADS_METRIC).tag("method", method).tag("uri", uri).summary();
+		DistributionSummary flushes = meterRegistry.find(QueryMetricsInterceptor.FLUSHES_METRIC).tag("method", method).tag("uri", uri).summary();
+		Timer statementTime = meterRegistry.find(QueryMetricsInterceptor.STATEMENT_TIME_METRIC).tag("method", method).tag("uri", uri).timer();
+		
+		return new EndpointQueryStats(
+				method + " " + uri,
+				statements.count(),
+				statements.mean(),
+				statements.max(),
+				entityLoads != null ? entityLoads.mean() : 0,
+				flushes != null ? flushes.mean() : 0,
+				statementTime != null ? statementTime.mean(TimeUnit.MILLISECONDS) : 0,
+				statementTime != null ? statementTime.max(TimeUnit.MILLISECONDS) : 0);
+	}
+	
+	public record EndpointQueryStats(String endpoint, long requests, double meanStatements, double maxStatements, double meanEntityLoads,
+			double meanFlushes, double meanStatementTimeMs, double maxStatementTimeMs) {
+	}
+}
@@ -0,0 +1,34 @@
+package com.cnewbywa.item.metrics;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Registers a post load listener that counts the entities loaded for the current request.
+ */
+public class QueryStatsIntegrator implements Integrator {
+
+	@Override
+	public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+		PostLoadEventListener listener = event -> {
+			RequestQueryStats stats = RequestQueryStats.current();
+			
+			if (stats != null) {
+				stats.entityLoaded();
+			}
+		};
+		
+		sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class).appendListeners(EventType.POST_LOAD, listener);
+	}
+	
+	@Override
+	public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+		// nothing to clean up
+	}
+}
@@ -0,0 +1,51 @@
+package com.cnewbywa.item.metrics;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Counts the statements and flushes of a Hibernate session for the current request.
+ * Hibernate creates an instance for every session.
+ */
+public class QueryStatsSessionListener implements SessionEventListener {
+
+	private static final long serialVersionUID = -3391764045962406417L;
+	
+	private long statementStart;
+	
+	@Override
+	public void jdbcExecuteStatementStart() {
+		statementStart = System.nanoTime();
+	}
+	
+	@Override
+	public void jdbcExecuteStatementEnd() {
+		statementExecuted();
+	}
+	
+	@Override
+	public void jdbcExecuteBatchStart() {
+		statementStart = System.nanoTime();
+	}
+	
+	@Override
+	public void jdbcExecuteBatchEnd() {
+		statementExecuted();
+	}
+	
+	@Override
+	public void flushEnd(int numberOfEntities, int numberOfCollections) {
+		RequestQueryStats stats = RequestQueryStats.current();
+		
+		if (stats != null) {
+			stats.flushed();
+		}
+	}
+	
+	private void statementExecuted() {
+		RequestQueryStats stats = RequestQueryStats.current();
+		
+		if (stats != null) {
+			stats.statementExecuted(System.nanoTime() - statementStart);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.cnewbywa.item.metrics;
+
+/**
+ * Database work done while handling the current request. The counters are updated by Hibernate callbacks,
+ * which run on the request thread.
+ */
+class RequestQueryStats {
+
+	private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+	
+	private int statements;
+	
+	private long statementNanos;
+	
+	private int entityLoads;
+	
+	private int flushes;
+	
+	static void start() {
+		CURRENT.set(new RequestQueryStats());
+	}
+	
+	static RequestQueryStats stop() {
+		RequestQueryStats stats = CURRENT.get();
+		
+		CURRENT.remove();
+		
+		return stats;
+	}
+	
+	static RequestQueryStats current() {
+		return CURRENT.get();
+	}
+	
+	void statementExecuted(long nanos) {
+		statements++;
+		statementNanos += nanos;
+	}
+	
+	void entityLoaded() {
+		entityLoads++;
+	}
+	
+	void flushed() {
+		flushes++;
+	}
+	
+	int getStatements() {
+		return statements;
+	}
+	
+	long getStatementNanos() {
+		return statementNanos;
+	}
+	
+	int getEntityLoads() {
+		return entityLoads;
+	}
+	
+	int getFlushes() {
+		return flushes;
+	}
+}
@@ -0,0 +1,44 @@
+package com.cnewbywa.item.metrics;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the time spent in decoding and validating access tokens, including fetching the signing keys of the issuer.
+ */
+public class TimedJwtDecoder implements JwtDecoder {
+
+	static final String METRIC_NAME = "item.jwt.decode";
+	
+	private final JwtDecoder jwtDecoder;
+	
+	private final Timer successes;
+	private final Timer failures;
+	
+	public TimedJwtDecoder(JwtDecoder jwtDecoder, MeterRegistry meterRegistry) {
+		this.jwtDecoder = jwtDecoder;
+		this.successes = Timer.builder(METRIC_NAME).tag("outcome", "success").register(meterRegistry);
+		this.failures = Timer.builder(METRIC_NAME).tag("outcome", "failure").register(meterRegistry);
+	}
+	
+	@Override
+	public Jwt decode(String token) throws JwtException {
+		Timer.Sample sample = Timer.start();
+		
+		try {
+			Jwt jwt = jwtDecoder.decode(token);
+			
+			sample.stop(successes);
+			
+			return jwt;
+		} catch (JwtException e) {
+			sample.stop(failures);
+			
+			throw e;
+		}
+	}
+}
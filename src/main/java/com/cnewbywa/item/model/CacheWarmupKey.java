@@ -0,0 +1,31 @@
+package com.cnewbywa.item.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Frequently requested cache entry that is loaded into the cache when the service starts
+ */
+@Entity
+@Table(name = "cache_warmup_key")
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheWarmupKey {
+
+	@Id
+	@Column(name = "cache_key")
+	private String cacheKey;
+	private long hits;
+	@Column(name = "update_time")
+	private Instant updateTime;
+}
@@ -0,0 +1,6 @@
+package com.cnewbywa.item.model;
+
+public enum CountMode {
+	
+	EXACT, ESTIMATED, NONE;
+}
@@ -0,0 +1,23 @@
+package com.cnewbywa.item.model;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Response of a write made with an Idempotency-Key header. While the first request is running, the entry holds only
+ * the lock token and the request fingerprint.
+ */
+public record IdempotentResponse(String token, String fingerprint, int status, Map<String, List<String>> headers, JsonNode body) {
+
+	public static IdempotentResponse inFlight(String token, String fingerprint) {
+		return new IdempotentResponse(token, fingerprint, 0, null, null);
+	}
+	
+	@JsonIgnore
+	public boolean isCompleted() {
+		return status != 0;
+	}
+}
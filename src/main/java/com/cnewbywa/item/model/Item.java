@@ -2,14 +2,13 @@ package com.cnewbywa.item.model;
 
 import java.util.UUID;
 
-import org.hibernate.annotations.Generated;
-import org.hibernate.generator.EventType;
-
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -30,10 +29,10 @@ public class Item extends Audit {
 	}
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+	@SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50) // pooled ids allow JDBC batching of inserts
 	private Long id;
-	@Column(name = "item_id")
-	@Generated(event = EventType.INSERT) // using a Hibernate annotation to get value generated by db
+	@Column(name = "item_id", updatable = false)
 	private UUID itemId;
 	@Size(min = 3, max = 50)
 	@NotBlank
@@ -45,4 +44,12 @@ public class Item extends Audit {
 	private String description;
 	@Version
 	private long version;
+	
+	// generated here instead of in the db so that no select is needed after the insert
+	@PrePersist
+	void assignItemId() {
+		if (itemId == null) {
+			itemId = UUID.randomUUID();
+		}
+	}
 }
@@ -0,0 +1,24 @@
+package com.cnewbywa.item.model;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemBatchResultDto implements Serializable {
+
+	private static final long serialVersionUID = -2871563019734465124L;
+	
+	private UUID id;
+	private boolean found;
+	private ItemDetailedResponseDto item;
+}
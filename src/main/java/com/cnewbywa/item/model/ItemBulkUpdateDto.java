@@ -0,0 +1,20 @@
+package com.cnewbywa.item.model;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+@Getter
+@Setter
+public class ItemBulkUpdateDto implements Serializable {
+
+	private static final long serialVersionUID = 3304977214687522153L;
+	
+	private UUID id;
+	private String name;
+	private String description;
+}
@@ -0,0 +1,45 @@
+package com.cnewbywa.item.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+import com.cnewbywa.item.error.InvalidCursorException;
+
+/**
+ * Position in a keyset scroll, i.e. the (create time, id) pair of the last returned item.
+ * The cursor is handed to clients as an opaque URL safe string.
+ */
+public record ItemCursor(Instant createTime, long id) {
+
+	private static final int ENCODED_LENGTH = Long.BYTES + Integer.BYTES + Long.BYTES;
+	
+	public static ItemCursor of(ItemSummary item) {
+		return new ItemCursor(item.getCreateTime(), item.getId());
+	}
+	
+	public static ItemCursor decode(String cursor) {
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+			
+			if (buffer.remaining() != ENCODED_LENGTH) {
+				throw new InvalidCursorException("Invalid cursor");
+			}
+			
+			return new ItemCursor(Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()), buffer.getLong());
+		} catch (IllegalArgumentException | BufferUnderflowException | DateTimeException e) {
+			throw new InvalidCursorException("Invalid cursor", e);
+		}
+	}
+	
+	public String encode() {
+		ByteBuffer buffer = ByteBuffer.allocate(ENCODED_LENGTH)
+				.putLong(createTime.getEpochSecond())
+				.putInt(createTime.getNano())
+				.putLong(id);
+		
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+	}
+}
@@ -26,4 +26,5 @@ public class ItemDetailedResponseDto implements Serializable {
 	private Instant updateTime;
 	private String createdBy;
 	private String modifiedBy;
+	private Long version;
 }
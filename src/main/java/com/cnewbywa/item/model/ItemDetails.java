@@ -0,0 +1,26 @@
+package com.cnewbywa.item.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Columns of an item needed in detailed responses
+ */
+public interface ItemDetails {
+
+	UUID getItemId();
+	
+	String getName();
+	
+	String getDescription();
+	
+	Instant getCreateTime();
+	
+	Instant getUpdateTime();
+	
+	String getCreatedBy();
+	
+	String getModifiedBy();
+	
+	long getVersion();
+}
@@ -3,6 +3,8 @@ package com.cnewbywa.item.model;
 import java.io.Serializable;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -20,5 +22,8 @@ public class ItemListResponseDto implements Serializable {
 	
 	private List<ItemResponseDto> items;
 	private long amount;
-	private long totalAmount;
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Long totalAmount;
+	private boolean totalAmountEstimated;
+	private boolean hasNext;
 }
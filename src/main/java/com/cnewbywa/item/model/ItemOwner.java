@@ -0,0 +1,11 @@
+package com.cnewbywa.item.model;
+
+/**
+ * Owner and version of an item
+ */
+public interface ItemOwner {
+
+	String getCreatedBy();
+	
+	long getVersion();
+}
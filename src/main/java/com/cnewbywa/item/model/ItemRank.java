@@ -0,0 +1,11 @@
+package com.cnewbywa.item.model;
+
+/**
+ * Id and search rank of a matching item
+ */
+public interface ItemRank {
+
+	long getId();
+	
+	float getRank();
+}
@@ -0,0 +1,42 @@
+package com.cnewbywa.item.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import com.cnewbywa.item.error.InvalidCursorException;
+
+/**
+ * Position in ranked search results, i.e. the (rank, id) pair of the last returned item.
+ * The cursor is handed to clients as an opaque URL safe string.
+ */
+public record ItemSearchCursor(float rank, long id) {
+
+	private static final int ENCODED_LENGTH = Float.BYTES + Long.BYTES;
+	
+	public static ItemSearchCursor of(ItemRank itemRank) {
+		return new ItemSearchCursor(itemRank.getRank(), itemRank.getId());
+	}
+	
+	public static ItemSearchCursor decode(String cursor) {
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+			
+			if (buffer.remaining() != ENCODED_LENGTH) {
+				throw new InvalidCursorException("Invalid cursor");
+			}
+			
+			return new ItemSearchCursor(buffer.getFloat(), buffer.getLong());
+		} catch (IllegalArgumentException | BufferUnderflowException e) {
+			throw new InvalidCursorException("Invalid cursor", e);
+		}
+	}
+	
+	public String encode() {
+		ByteBuffer buffer = ByteBuffer.allocate(ENCODED_LENGTH)
+				.putFloat(rank)
+				.putLong(id);
+		
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+	}
+}
@@ -0,0 +1,35 @@
+package com.cnewbywa.item.model;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import com.cnewbywa.item.error.InvalidSearchQueryException;
+
+/**
+ * Normalized search text: trimmed, lower case and with single spaces, so that equal searches share cache entries.
+ */
+public record ItemSearchQuery(String text) {
+
+	private static final int MAX_LENGTH = 200;
+	
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	
+	public static ItemSearchQuery of(String query) {
+		String text = query != null ? WHITESPACE.matcher(query.strip()).replaceAll(" ").toLowerCase(Locale.ROOT) : "";
+		
+		if (text.isEmpty() || text.length() > MAX_LENGTH) {
+			throw new InvalidSearchQueryException("Invalid search query");
+		}
+		
+		return new ItemSearchQuery(text);
+	}
+	
+	/**
+	 * Get the smallest string that is greater than all strings starting with the text, in code point order
+	 */
+	public String upperBound() {
+		int lastCodePoint = text.codePointBefore(text.length());
+		
+		return text.substring(0, text.length() - Character.charCount(lastCodePoint)) + Character.toString(lastCodePoint + 1);
+	}
+}
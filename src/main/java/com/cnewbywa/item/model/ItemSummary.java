@@ -0,0 +1,20 @@
+package com.cnewbywa.item.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Columns of an item needed in list responses. The id is only used in scroll cursors.
+ */
+public interface ItemSummary {
+
+	long getId();
+	
+	UUID getItemId();
+	
+	String getName();
+	
+	Instant getCreateTime();
+	
+	String getCreatedBy();
+}
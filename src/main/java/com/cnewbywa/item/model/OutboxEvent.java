@@ -0,0 +1,43 @@
+package com.cnewbywa.item.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "event_outbox")
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "event_outbox_seq")
+	@SequenceGenerator(name = "event_outbox_seq", sequenceName = "event_outbox_seq", allocationSize = 50)
+	private Long id;
+	@Column(name = "event_id")
+	private String eventId;
+	@Column(name = "item_id")
+	private UUID itemId;
+	@Column(name = "item_version")
+	private Long itemVersion;
+	@Enumerated(EnumType.STRING)
+	private ItemAction action;
+	private String message;
+	@Column(name = "create_time")
+	private Instant createTime;
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.model;
+
+/**
+ * What to do with a new event when the outbox backlog is full:
+ * SPILL stores it anyway, DROP discards it and REJECT fails the write.
+ */
+public enum OutboxOverflowPolicy {
+
+	SPILL, DROP, REJECT;
+}
@@ -0,0 +1,14 @@
+package com.cnewbywa.item.model;
+
+/**
+ * Detailed item response as the JSON bytes sent to the client, together with the ETag of the response
+ */
+public record SerializedItemResponse(byte[] body, String eTag) {
+
+	/**
+	 * Get the strong ETag of the item version, null for entries cached before the version was added to the response
+	 */
+	public static String eTag(Long version) {
+		return version != null ? "\"" + version + "\"" : null;
+	}
+}
@@ -0,0 +1,29 @@
+package com.cnewbywa.item.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import com.cnewbywa.item.model.CacheWarmupKey;
+
+public interface CacheWarmupKeyRepository extends JpaRepository<CacheWarmupKey, String> {
+	
+	// the earlier hits are halved once per half-life passed since the last update, so keys that are no longer requested drop out over time.
+	// The decay depends on the time only, not on how many nodes add hits to the key. After 64 halvings nothing is left of the hits.
+	@Modifying
+	@Query(value = "INSERT INTO item.cache_warmup_key (cache_key, hits, update_time) VALUES (:cacheKey, :hits, :updateTime) "
+			+ "ON CONFLICT (cache_key) DO UPDATE SET hits = CAST(cache_warmup_key.hits * power(0.5, CAST(LEAST(64, GREATEST(0, "
+			+ "EXTRACT(EPOCH FROM (EXCLUDED.update_time - cache_warmup_key.update_time)) * 1000 / :halfLife)) AS double precision)) AS bigint) + EXCLUDED.hits, "
+			+ "update_time = GREATEST(cache_warmup_key.update_time, EXCLUDED.update_time)", nativeQuery = true)
+	void addHits(String cacheKey, long hits, Instant updateTime, long halfLife);
+	
+	@Query(value = "SELECT cache_key FROM item.cache_warmup_key WHERE update_time > :since ORDER BY hits DESC LIMIT :limit", nativeQuery = true)
+	List<String> findHottest(Instant since, int limit);
+	
+	@Modifying
+	@Query(value = "DELETE FROM item.cache_warmup_key WHERE update_time <= :before", nativeQuery = true)
+	int deleteUpdatedBefore(Instant before);
+}
@@ -1,19 +1,125 @@
 package com.cnewbywa.item.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemDetails;
+import com.cnewbywa.item.model.ItemOwner;
+import com.cnewbywa.item.model.ItemRank;
+import com.cnewbywa.item.model.ItemSummary;
+
+import jakarta.persistence.QueryHint;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
 	
+	long ANY_VERSION = -1;
+	
+	// the aliases match the getters of the projections, as native query results are mapped by column name
+	String SUMMARY_COLUMNS = "id AS \"id\", item_id AS \"itemId\", name AS \"name\", create_time AS \"createTime\", created_by AS \"createdBy\"";
+	
+	String DETAILS_COLUMNS = "item_id AS \"itemId\", name AS \"name\", description AS \"description\", create_time AS \"createTime\", "
+			+ "update_time AS \"updateTime\", created_by AS \"createdBy\", modified_by AS \"modifiedBy\", version AS \"version\"";
+	
 	Optional<Item> findByItemId(UUID itemId);
 	
-	Page<Item> findAllByCreatedBy(String user, Pageable pageable);
+	Optional<ItemDetails> findDetailsByItemId(UUID itemId);
+	
+	List<Item> findAllByItemIdIn(Collection<UUID> itemIds);
+	
+	/**
+	 * Find the items with the given ids with one statement whose text does not depend on the amount of ids
+	 */
+	default List<ItemDetails> findAllByItemIds(Collection<UUID> itemIds) {
+		return findAllByItemIdArray(itemIds.stream().map(UUID::toString).collect(Collectors.joining(",", "{", "}")));
+	}
+	
+	@Query(value = "SELECT " + DETAILS_COLUMNS + " FROM item.item WHERE item_id = ANY(CAST(:itemIds AS uuid[]))", nativeQuery = true)
+	List<ItemDetails> findAllByItemIdArray(String itemIds);
+	
+	List<ItemSummary> findSummariesByIdIn(Collection<Long> ids);
+	
+	Page<ItemSummary> findPageBy(Pageable pageable);
+	
+	Page<ItemSummary> findAllByCreatedBy(String user, Pageable pageable);
+	
+	Slice<ItemSummary> findSliceBy(Pageable pageable);
+	
+	Slice<ItemSummary> findSliceByCreatedBy(String user, Pageable pageable);
+	
+	long countByCreatedBy(String user);
+	
+	@Query(value = "SELECT CAST(reltuples AS bigint) FROM pg_class WHERE oid = CAST('item.item' AS regclass)", nativeQuery = true)
+	long findEstimatedCount();
+	
+	@Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM item.item ORDER BY create_time DESC, id DESC LIMIT :limit", nativeQuery = true)
+	List<ItemSummary> findFirstKeysetPage(int limit);
+	
+	@Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM item.item WHERE (create_time, id) < (:createTime, :id) ORDER BY create_time DESC, id DESC LIMIT :limit", nativeQuery = true)
+	List<ItemSummary> findKeysetPageAfter(Instant createTime, long id, int limit);
+	
+	@Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM item.item WHERE created_by = :user ORDER BY create_time DESC, id DESC LIMIT :limit", nativeQuery = true)
+	List<ItemSummary> findFirstKeysetPageByCreatedBy(String user, int limit);
+	
+	@Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM item.item WHERE created_by = :user AND (create_time, id) < (:createTime, :id) ORDER BY create_time DESC, id DESC LIMIT :limit", nativeQuery = true)
+	List<ItemSummary> findKeysetPageByCreatedByAfter(String user, Instant createTime, long id, int limit);
+	
+	@Query(value = "SELECT i.id AS id, ts_rank_cd(i.search_vector, q) AS rank FROM item.item i, websearch_to_tsquery('simple', :query) q "
+			+ "WHERE i.search_vector @@ q ORDER BY rank DESC, i.id DESC LIMIT :limit", nativeQuery = true)
+	List<ItemRank> findFirstSearchPage(String query, int limit);
+	
+	@Query(value = "SELECT i.id AS id, ts_rank_cd(i.search_vector, q) AS rank FROM item.item i, websearch_to_tsquery('simple', :query) q "
+			+ "WHERE i.search_vector @@ q AND (ts_rank_cd(i.search_vector, q), i.id) < (CAST(:rank AS real), :id) ORDER BY rank DESC, i.id DESC LIMIT :limit", nativeQuery = true)
+	List<ItemRank> findSearchPageAfter(String query, float rank, long id, int limit);
+	
+	@Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM item.item WHERE lower(name) COLLATE \"C\" >= :prefix AND lower(name) COLLATE \"C\" < :upperBound "
+			+ "ORDER BY lower(name) COLLATE \"C\", id LIMIT :limit", nativeQuery = true)
+	List<ItemSummary> findByNamePrefix(String prefix, String upperBound, int limit);
+	
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("select i from Item i order by i.id")
+	Stream<Item> streamAll();
+	
+	boolean existsByItemId(UUID itemId);
+	
+	/**
+	 * Update the name and description of the item, fill in the audit fields and increment the version with one statement
+	 *
+	 * @param expectedVersion version the item must have, null if any version can be updated
+	 * @return the updated item, empty if the item does not exist or has another version
+	 */
+	default Optional<Item> updateByItemId(UUID itemId, String name, String description, Instant updateTime, String modifiedBy, Long expectedVersion) {
+		return updateByItemIdAndVersion(itemId, name, description, updateTime, modifiedBy, expectedVersion != null ? expectedVersion : ANY_VERSION);
+	}
+	
+	@Transactional
+	@Query(value = "UPDATE item.item SET name = :name, description = :description, update_time = :updateTime, modified_by = :modifiedBy, version = version + 1 "
+			+ "WHERE item_id = :itemId AND (:expectedVersion = " + ANY_VERSION + " OR version = :expectedVersion) RETURNING *", nativeQuery = true)
+	Optional<Item> updateByItemIdAndVersion(UUID itemId, String name, String description, Instant updateTime, String modifiedBy, long expectedVersion);
 	
-	void deleteByItemId(UUID itemId);
+	/**
+	 * Delete the item without loading it first
+	 *
+	 * @return owner and last version of the deleted item, empty if the item does not exist
+	 */
+	@Transactional
+	@Query(value = "DELETE FROM item.item WHERE item_id = :itemId RETURNING created_by AS \"createdBy\", version AS \"version\"", nativeQuery = true)
+	Optional<ItemOwner> deleteByItemId(UUID itemId);
 }
@@ -0,0 +1,29 @@
+package com.cnewbywa.item.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import com.cnewbywa.item.model.OutboxEvent;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+	
+	// the lease times use the database clock, so the clocks of the nodes do not need to agree
+	@Modifying
+	@Query(value = "UPDATE item.outbox_relay_lease SET owner = :owner, expire_time = now() + :leaseTime * interval '1 millisecond' "
+			+ "WHERE id = 1 AND (owner = :owner OR expire_time < now())", nativeQuery = true)
+	int acquireLease(String owner, long leaseTime);
+	
+	@Modifying
+	@Query(value = "UPDATE item.outbox_relay_lease SET owner = NULL, expire_time = now() WHERE id = 1 AND owner = :owner", nativeQuery = true)
+	int releaseLease(String owner);
+	
+	@Query(value = "SELECT * FROM item.event_outbox ORDER BY id LIMIT :limit", nativeQuery = true)
+	List<OutboxEvent> findOldest(int limit);
+	
+	// counting stops at the limit, so the cost stays bounded when the backlog is large
+	@Query(value = "SELECT count(*) FROM (SELECT 1 FROM item.event_outbox LIMIT :limit) AS backlog", nativeQuery = true)
+	long countBacklog(long limit);
+}
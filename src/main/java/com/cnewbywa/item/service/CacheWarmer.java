@@ -0,0 +1,324 @@
+package com.cnewbywa.item.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cnewbywa.item.model.CountMode;
+import com.cnewbywa.item.model.ItemBatchResultDto;
+import com.cnewbywa.item.repository.CacheWarmupKeyRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the caches warm over restarts. A sample of the item and list requests is counted in memory, and the most requested
+ * keys are saved to the database periodically. On startup the saved keys are loaded into the "item" and "items" caches, and
+ * "item-response" when it is enabled, before the application reports itself ready, in parallel batches at a limited rate so
+ * that the warm-up does not overload the database.
+ */
+@Component
+@Slf4j
+public class CacheWarmer implements ApplicationRunner {
+
+	static final String WARMUP_METRIC_NAME = "item.cache.warmup";
+	
+	static final String ITEM_KEY_PREFIX = "item|";
+	static final String LIST_KEY_PREFIX = "all|";
+	static final String USER_LIST_KEY_PREFIX = "user|";
+	
+	// length of the cache_key column, longer keys are not tracked
+	static final int MAX_KEY_LENGTH = 500;
+	
+	@Value("${application.cache.warmup.enabled}")
+	private boolean enabled;
+	
+	@Value("${application.cache.warmup.sample-rate}")
+	private double sampleRate;
+	
+	@Value("${application.cache.warmup.max-tracked}")
+	private int maxTracked;
+	
+	@Value("${application.cache.warmup.max-keys}")
+	private int maxKeys;
+	
+	@Value("${application.cache.warmup.persist-interval}")
+	private long persistInterval;
+	
+	@Value("${application.cache.warmup.retention}")
+	private long retention;
+	
+	@Value("${application.cache.warmup.batch-size}")
+	private int batchSize;
+	
+	@Value("${application.cache.warmup.parallelism}")
+	private int parallelism;
+	
+	@Value("${application.cache.warmup.max-rate}")
+	private double maxRate;
+	
+	@Value("${application.cache.warmup.timeout}")
+	private long timeout;
+	
+	@Value("${application.cache.response.enabled}")
+	private boolean responseCacheEnabled;
+	
+	@Autowired
+	private ItemService itemService;
+	
+	@Autowired
+	private ItemResponseService itemResponseService;
+	
+	@Autowired
+	private CacheWarmupKeyRepository cacheWarmupKeyRepository;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	private final AtomicReference<Map<String, LongAdder>> hits = new AtomicReference<>(new ConcurrentHashMap<>());
+	
+	private long nextLoad;
+	
+	private Counter loadedKeys;
+	private Counter failedKeys;
+	
+	@PostConstruct
+	void init() {
+		loadedKeys = createCounter("loaded");
+		failedKeys = createCounter("failed");
+	}
+	
+	public void recordItem(UUID id) {
+		record(ITEM_KEY_PREFIX + id);
+	}
+	
+	public void recordList(Pageable pageable, CountMode countMode) {
+		if (pageable.isPaged()) {
+			record(LIST_KEY_PREFIX + describe(pageable, countMode));
+		}
+	}
+	
+	public void recordUserList(String user, Pageable pageable, CountMode countMode) {
+		// the user is last, as it can contain the separator
+		if (pageable.isPaged()) {
+			record(USER_LIST_KEY_PREFIX + describe(pageable, countMode) + "|" + user);
+		}
+	}
+	
+	/**
+	 * Save the most requested keys counted since the last run and remove the keys that have not been requested within the retention time.
+	 * The saved hits are halved for every persist interval that has passed, however many nodes save the key.
+	 */
+	@Scheduled(initialDelayString = "${application.cache.warmup.persist-interval}", fixedDelayString = "${application.cache.warmup.persist-interval}")
+	public void persistHotKeys() {
+		if (!enabled) {
+			return;
+		}
+		
+		List<Map.Entry<String, Long>> hottest = hits.getAndSet(new ConcurrentHashMap<>()).entrySet().stream()
+				.map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+				.sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+				.limit(maxKeys)
+				.toList();
+		
+		Instant now = Instant.now();
+		
+		transactionTemplate.executeWithoutResult(status -> {
+			hottest.forEach(entry -> cacheWarmupKeyRepository.addHits(entry.getKey(), entry.getValue(), now, persistInterval));
+			
+			cacheWarmupKeyRepository.deleteUpdatedBefore(now.minusMillis(retention));
+		});
+	}
+	
+	/**
+	 * Load the saved keys into the caches. The application is not ready before the runners have completed.
+	 */
+	@Override
+	public void run(ApplicationArguments args) {
+		if (!enabled) {
+			return;
+		}
+		
+		try {
+			warmUp(cacheWarmupKeyRepository.findHottest(Instant.now().minusMillis(retention), maxKeys));
+		} catch (RuntimeException e) {
+			log.error("Error warming up the caches", e);
+		}
+	}
+	
+	void warmUp(List<String> keys) {
+		if (keys.isEmpty()) {
+			return;
+		}
+		
+		long start = System.nanoTime();
+		
+		List<UUID> itemIds = keys.stream().filter(key -> key.startsWith(ITEM_KEY_PREFIX)).map(key -> UUID.fromString(key.substring(ITEM_KEY_PREFIX.length()))).toList();
+		
+		List<Runnable> loads = new ArrayList<>();
+		
+		for (int i = 0; i < itemIds.size(); i += batchSize) {
+			List<UUID> batch = itemIds.subList(i, Math.min(i + batchSize, itemIds.size()));
+			
+			loads.add(() -> load(batch.size(), () -> loadItems(batch)));
+		}
+		
+		keys.stream().filter(key -> !key.startsWith(ITEM_KEY_PREFIX)).forEach(key -> loads.add(() -> load(1, () -> loadList(key))));
+		
+		nextLoad = System.nanoTime();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, Thread.ofVirtual().name("cache-warmup-", 0).factory());
+		
+		try {
+			loads.forEach(loadTask -> executor.execute(() -> {
+				if (awaitRate()) {
+					loadTask.run();
+				}
+			}));
+			
+			executor.shutdown();
+			
+			if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+				log.warn("Cache warm-up did not complete in {} ms, continuing without it", timeout);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		log.info("Warmed up the caches with {} keys in {} ms", keys.size(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+	}
+	
+	private void record(String key) {
+		if (!enabled || key.length() > MAX_KEY_LENGTH || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+			return;
+		}
+		
+		Map<String, LongAdder> currentHits = hits.get();
+		
+		// new keys are not tracked once the map is full, the map is replaced with an empty one every time the keys are saved
+		LongAdder counter = currentHits.size() < maxTracked ? currentHits.computeIfAbsent(key, k -> new LongAdder()) : currentHits.get(key);
+		
+		if (counter != null) {
+			counter.increment();
+		}
+	}
+	
+	private void load(int keyCount, Runnable loader) {
+		try {
+			loader.run();
+			
+			loadedKeys.increment(keyCount);
+		} catch (RuntimeException e) {
+			log.warn("Error warming up the caches", e);
+			
+			failedKeys.increment(keyCount);
+		}
+	}
+	
+	private void loadItems(List<UUID> ids) {
+		List<ItemBatchResultDto> items = itemService.getItemsByIds(ids);
+		
+		// the serialized responses are created from the item cache, which has just been loaded
+		if (responseCacheEnabled) {
+			items.stream().filter(ItemBatchResultDto::isFound).forEach(item -> itemResponseService.getItem(item.getId()));
+		}
+	}
+	
+	private void loadList(String key) {
+		String[] parts = key.split("\\|", 6);
+		
+		Pageable pageable = PageRequest.of(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), parseSort(parts[3]));
+		CountMode countMode = CountMode.valueOf(parts[4]);
+		
+		if (key.startsWith(USER_LIST_KEY_PREFIX)) {
+			itemService.getItemsByUser(parts[5], pageable, countMode);
+		} else {
+			itemService.getItems(pageable, countMode);
+		}
+	}
+	
+	// the loads are spread evenly, at most max rate loads are started per second
+	private boolean awaitRate() {
+		long loadTime;
+		
+		synchronized (this) {
+			loadTime = Math.max(nextLoad, System.nanoTime());
+			nextLoad = loadTime + (long) (TimeUnit.SECONDS.toNanos(1) / maxRate);
+		}
+		
+		long delay = loadTime - System.nanoTime();
+		
+		if (delay > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(delay);
+			} catch (InterruptedException e) {
+				// the warm-up has timed out
+				Thread.currentThread().interrupt();
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private static String describe(Pageable pageable, CountMode countMode) {
+		String sort = pageable.getSort().stream()
+				.map(order -> order.getProperty() + ":" + order.getDirection())
+				.collect(Collectors.joining(","));
+		
+		return pageable.getPageNumber() + "|" + pageable.getPageSize() + "|" + sort + "|" + countMode;
+	}
+	
+	private static Sort parseSort(String sort) {
+		if (sort.isEmpty()) {
+			return Sort.unsorted();
+		}
+		
+		List<Sort.Order> orders = new ArrayList<>();
+		
+		for (String order : sort.split(",")) {
+			String[] parts = order.split(":");
+			
+			orders.add(new Sort.Order(Sort.Direction.valueOf(parts[1]), parts[0]));
+		}
+		
+		return Sort.by(orders);
+	}
+	
+	private Counter createCounter(String result) {
+		return Counter.builder(WARMUP_METRIC_NAME)
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+}
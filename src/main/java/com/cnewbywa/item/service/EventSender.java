@@ -7,11 +7,17 @@ import com.cnewbywa.item.model.ItemAction;
 public interface EventSender {
 
 	/**
-	 * Send events
+	 * Send events. The event is stored in the outbox within the current transaction and relayed to Kafka after commit.
+	 * When the outbox backlog is full, the configured overflow policy decides whether the event is stored, dropped or the write rejected.
+	 * 
+	 * The event is keyed by the item id, so all events of an item end up in the same partition. They are not guaranteed to be in
+	 * the order they were made, consumers order them by version.
 	 * 
 	 * @param id
+	 * @param version version of the item after the action, lets consumers skip stale and duplicate events. A delete has the
+	 *            version of the last modification plus one.
 	 * @param action
 	 * @param eventMessage
 	 */
-	void sendEvent(UUID id, ItemAction action, String eventMessage);
+	void sendEvent(UUID id, long version, ItemAction action, String eventMessage);
 }
@@ -2,59 +2,100 @@ package com.cnewbywa.item.service;
 
 import java.time.Instant;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
 import org.apache.kafka.common.Uuid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import com.cnewbywa.events.EventMessage;
-
+import com.cnewbywa.item.error.EventBacklogFullException;
 import com.cnewbywa.item.model.ItemAction;
+import com.cnewbywa.item.model.OutboxEvent;
+import com.cnewbywa.item.model.OutboxOverflowPolicy;
+import com.cnewbywa.item.repository.OutboxEventRepository;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class EventSenderImpl implements EventSender {
 
-	@Value("${application.events.topic}")
-    private String eventTopic;
+	static final String OVERFLOW_METRIC_NAME = "item.events.overflow";
+	
+	@Value("${application.events.outbox.overflow-policy}")
+	private OutboxOverflowPolicy overflowPolicy;
 	
-	@Value("${application.id}")
-    private String applicationId;
-
     @Autowired
-    private KafkaTemplate<String, EventMessage> kafkaTemplate;
+    private OutboxEventRepository outboxEventRepository;
+	
+	@Autowired
+	private OutboxRelay outboxRelay;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	private Counter overflows;
+	
+	@PostConstruct
+	void init() {
+		overflows = Counter.builder(OVERFLOW_METRIC_NAME)
+				.tag("policy", overflowPolicy.toString())
+				.register(meterRegistry);
+	}
 	
     @Override
-	@Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void sendEvent(UUID itemId, ItemAction action, String eventMessage) {
-    	sendEvent(new EventMessage(
-    			Uuid.randomUuid().toString(),
-    			itemId.toString(),
-    			action.toString(),
-    			String.format(eventMessage, itemId),
-    			Instant.now(),
-    			applicationId));
+	@Transactional(propagation = Propagation.MANDATORY)
+    public void sendEvent(UUID itemId, long version, ItemAction action, String eventMessage) {
+    	if (outboxRelay.isBacklogFull() && !acceptOverflow(itemId, action)) {
+    		return;
+    	}
+    	
+    	log.debug("Storing {} event of item {} to outbox", action, itemId);
+    	
+    	outboxEventRepository.save(OutboxEvent.builder()
+    			.eventId(Uuid.randomUuid().toString())
+    			.itemId(itemId)
+    			.itemVersion(version)
+    			.action(action)
+    			.message(eventMessage)
+    			.createTime(Instant.now())
+    			.build());
+    	
+    	requestRelayAfterCommit();
 	}
     
-	private void sendEvent(EventMessage eventMessage) {
-		log.debug("Sending event to topic {}...", eventTopic);
-		
-		CompletableFuture<SendResult<String, EventMessage>> kafkaFuture = kafkaTemplate.send(eventTopic, eventMessage);
-
-		kafkaFuture.whenComplete((result, exception) -> {
-			if (exception != null) {
-				log.error("Error sending event message " + eventMessage, exception);
-			} else {
-				log.debug("Event message sent successfully");
-			}
-		});
-	}
+    private boolean acceptOverflow(UUID itemId, ItemAction action) {
+    	overflows.increment();
+    	
+    	switch (overflowPolicy) {
+    		case DROP:
+    			log.warn("Event backlog is full, dropping {} event of item {}", action, itemId);
+    			
+    			return false;
+    		case REJECT:
+    			throw new EventBacklogFullException("Event backlog is full");
+    		default:
+    			return true;
+    	}
+    }
+    
+    // the relay picks the event up right away instead of at the next poll
+    private void requestRelayAfterCommit() {
+    	if (TransactionSynchronizationManager.isSynchronizationActive()) {
+    		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+    			@Override
+    			public void afterCommit() {
+    				outboxRelay.eventAdded();
+    				outboxRelay.requestRelay();
+    			}
+    		});
+    	}
+    }
 }
@@ -0,0 +1,262 @@
+package com.cnewbywa.item.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.cnewbywa.item.error.IdempotencyKeyReusedException;
+import com.cnewbywa.item.error.IdempotentRequestInProgressException;
+import com.cnewbywa.item.error.InvalidIdempotencyKeyException;
+import com.cnewbywa.item.model.IdempotentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs writes made with an Idempotency-Key header at most once per user and key. The response of the first request is stored
+ * in Redis and returned to the retries of the request. A request that arrives while the first one is still running waits for
+ * its response instead of running the write again.
+ * <p>
+ * Only successful responses are stored, so a request that failed can be retried with the same key. If Redis is not available,
+ * the write is run without the idempotency check.
+ * <p>
+ * A retry waits for the running request at most the lock timeout and then fails as in progress. The lock itself lives much
+ * longer, for the lock time to live, so that it does not expire while a slow write is still running. If the node dies while
+ * running the write, the key stays locked until the lock time to live has passed.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+	public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+	public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+	
+	static final String METRIC_NAME = "item.idempotency.requests";
+	
+	private static final String KEY_PREFIX = "idempotency:";
+	private static final int MAX_KEY_LENGTH = 255;
+	private static final long POLL_INTERVAL = 50;
+	
+	private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+			"if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+	
+	@Value("${application.idempotency.time-to-live}")
+	private long ttl;
+	
+	@Value("${application.idempotency.lock-timeout}")
+	private long lockTimeout;
+	
+	@Value("${application.idempotency.lock-time-to-live}")
+	private long lockTtl;
+	
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	private Counter executedRequests;
+	private Counter replayedRequests;
+	private Counter reusedKeys;
+	private Counter requestsInProgress;
+	
+	@PostConstruct
+	void init() {
+		executedRequests = createCounter("executed");
+		replayedRequests = createCounter("replayed");
+		reusedKeys = createCounter("reused");
+		requestsInProgress = createCounter("in-progress");
+	}
+	
+	/**
+	 * Run the write once for the given key
+	 *
+	 * @param key value of the Idempotency-Key header
+	 * @param user user making the request, keys of different users never match
+	 * @param request method and path of the request, together with the body it must match the first request made with the key
+	 * @param requestBody body of the request, can be null
+	 * @param bodyType type of the response body
+	 * @param action the write
+	 */
+	public <T> ResponseEntity<T> execute(String key, String user, String request, Object requestBody, Class<T> bodyType, Supplier<ResponseEntity<T>> action) {
+		if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+			throw new InvalidIdempotencyKeyException("Idempotency key must have 1 - " + MAX_KEY_LENGTH + " characters");
+		}
+		
+		String redisKey = KEY_PREFIX + user + ":" + key;
+		String fingerprint = createFingerprint(request, requestBody);
+		IdempotentResponse inFlight = IdempotentResponse.inFlight(UUID.randomUUID().toString(), fingerprint);
+		
+		IdempotentResponse stored;
+		
+		try {
+			stored = acquire(redisKey, inFlight);
+		} catch (DataAccessException e) {
+			log.error("Error reading idempotency key " + redisKey + ", running the request without it", e);
+			
+			return action.get();
+		}
+		
+		if (stored != null) {
+			if (!fingerprint.equals(stored.fingerprint())) {
+				reusedKeys.increment();
+				
+				throw new IdempotencyKeyReusedException("Idempotency key has been used with another request");
+			}
+			
+			replayedRequests.increment();
+			
+			return replay(stored, bodyType);
+		}
+		
+		executedRequests.increment();
+		
+		ResponseEntity<T> response;
+		
+		try {
+			response = action.get();
+		} catch (RuntimeException e) {
+			release(redisKey, inFlight);
+			
+			throw e;
+		}
+		
+		store(redisKey, fingerprint, response);
+		
+		return response;
+	}
+	
+	/**
+	 * Lock the key for this request, or wait for the response of the request holding the lock
+	 *
+	 * @return the stored response, null if the lock was acquired
+	 */
+	private IdempotentResponse acquire(String redisKey, IdempotentResponse inFlight) {
+		String lockValue = write(inFlight);
+		long deadline = System.nanoTime() + Duration.ofMillis(lockTimeout).toNanos();
+		
+		while (true) {
+			if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(redisKey, lockValue, Duration.ofMillis(lockTtl)))) {
+				return null;
+			}
+			
+			String value = redisTemplate.opsForValue().get(redisKey);
+			
+			// the lock may have been released between the two calls, in which case the lock is tried again
+			if (value != null) {
+				IdempotentResponse stored = read(value);
+				
+				// a different request fails right away, it would not get the response after waiting either
+				if (stored.isCompleted() || !inFlight.fingerprint().equals(stored.fingerprint())) {
+					return stored;
+				}
+			}
+			
+			if (System.nanoTime() >= deadline) {
+				requestsInProgress.increment();
+				
+				throw new IdempotentRequestInProgressException("Request with the same idempotency key is in progress");
+			}
+			
+			try {
+				Thread.sleep(POLL_INTERVAL);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				
+				throw new IdempotentRequestInProgressException("Request with the same idempotency key is in progress");
+			}
+		}
+	}
+	
+	private void store(String redisKey, String fingerprint, ResponseEntity<?> response) {
+		try {
+			IdempotentResponse completed = new IdempotentResponse(null, fingerprint, response.getStatusCode().value(), response.getHeaders(),
+					response.getBody() != null ? objectMapper.valueToTree(response.getBody()) : null);
+			
+			redisTemplate.opsForValue().set(redisKey, write(completed), Duration.ofMillis(ttl));
+		} catch (RuntimeException e) {
+			// the write has been made, so the response is returned even though retries will run it again
+			log.error("Error storing response of idempotency key " + redisKey, e);
+		}
+	}
+	
+	private void release(String redisKey, IdempotentResponse inFlight) {
+		try {
+			redisTemplate.execute(RELEASE_SCRIPT, List.of(redisKey), write(inFlight));
+		} catch (RuntimeException e) {
+			log.error("Error releasing idempotency key " + redisKey, e);
+		}
+	}
+	
+	private <T> ResponseEntity<T> replay(IdempotentResponse stored, Class<T> bodyType) {
+		HttpHeaders headers = new HttpHeaders();
+		
+		if (stored.headers() != null) {
+			headers.putAll(stored.headers());
+		}
+		
+		headers.set(REPLAYED_HEADER, "true");
+		
+		T body = stored.body() != null && !stored.body().isNull() ? objectMapper.convertValue(stored.body(), bodyType) : null;
+		
+		return ResponseEntity.status(stored.status()).headers(headers).body(body);
+	}
+	
+	private String createFingerprint(String request, Object requestBody) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			
+			digest.update(request.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+			digest.update(objectMapper.writeValueAsBytes(requestBody));
+			
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException | JsonProcessingException e) {
+			throw new IllegalStateException("Could not create request fingerprint", e);
+		}
+	}
+	
+	private String write(IdempotentResponse response) {
+		try {
+			return objectMapper.writeValueAsString(response);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not write idempotent response", e);
+		}
+	}
+	
+	private IdempotentResponse read(String value) {
+		try {
+			return objectMapper.readValue(value, IdempotentResponse.class);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not read idempotent response", e);
+		}
+	}
+	
+	private Counter createCounter(String result) {
+		return Counter.builder(METRIC_NAME)
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+}
@@ -0,0 +1,53 @@
+package com.cnewbywa.item.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cnewbywa.item.repository.ItemRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Provides approximate item counts for list responses. The total amount is read from the planner statistics of the item table
+ * and per user amounts are counted and kept in memory for a while.
+ */
+@Component
+public class ItemCountEstimator {
+
+	private static final String TOTAL_KEY = "all";
+	private static final String USER_KEY_PREFIX = "user:";
+	
+	@Value("${application.count.estimate.time-to-live}")
+	private long ttl;
+	
+	@Autowired
+	private ItemRepository itemRepository;
+	
+	private Cache<String, Long> counts;
+	
+	@PostConstruct
+	void init() {
+		counts = Caffeine.newBuilder()
+				.maximumSize(10000)
+				.expireAfterWrite(Duration.ofMillis(ttl))
+				.build();
+	}
+	
+	public long estimateTotal() {
+		return counts.get(TOTAL_KEY, key -> {
+			long estimate = itemRepository.findEstimatedCount();
+			
+			// the planner statistics are not available before the table has been analyzed for the first time
+			return estimate >= 0 ? estimate : itemRepository.count();
+		});
+	}
+	
+	public long estimateTotalByUser(String user) {
+		return counts.get(USER_KEY_PREFIX + user, key -> itemRepository.countByCreatedBy(user));
+	}
+}
@@ -0,0 +1,25 @@
+package com.cnewbywa.item.service;
+
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import com.cnewbywa.item.model.SerializedItemResponse;
+
+/**
+ * Provides the detailed item responses already serialized, so that a cache hit is sent to the client without going through Jackson.
+ * The entries are updated and evicted together with the item cache by {@link ItemService}.
+ */
+@Service
+public class ItemResponseService {
+
+	@Autowired
+	private ItemService itemService;
+	
+	@Cacheable(value = ItemService.RESPONSE_CACHE_NAME, key = "#id", sync = true)
+	public SerializedItemResponse getItem(UUID id) {
+		return itemService.createSerializedResponse(itemService.getItem(id));
+	}
+}
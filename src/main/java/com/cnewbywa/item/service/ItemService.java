@@ -1,30 +1,80 @@
 package com.cnewbywa.item.service;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.MessageFormat;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.cnewbywa.item.cache.BatchCache;
+import com.cnewbywa.item.cache.ItemListCacheKeys;
+import com.cnewbywa.item.datasource.ConcurrencyLimitingDataSource;
+import com.cnewbywa.item.datasource.ReadYourWritesTracker;
+import com.cnewbywa.item.error.BulkLimitExceededException;
 import com.cnewbywa.item.error.ItemNotFoundException;
+import com.cnewbywa.item.error.PreconditionFailedException;
+import com.cnewbywa.item.model.CountMode;
 import com.cnewbywa.item.model.Item;
 import com.cnewbywa.item.model.ItemAction;
+import com.cnewbywa.item.model.ItemBatchResultDto;
+import com.cnewbywa.item.model.ItemBulkUpdateDto;
+import com.cnewbywa.item.model.ItemCursor;
 import com.cnewbywa.item.model.ItemDetailedResponseDto;
+import com.cnewbywa.item.model.ItemDetails;
 import com.cnewbywa.item.model.ItemDto;
 import com.cnewbywa.item.model.ItemListResponseDto;
+import com.cnewbywa.item.model.ItemOwner;
+import com.cnewbywa.item.model.ItemRank;
 import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.model.ItemScrollResponseDto;
+import com.cnewbywa.item.model.ItemSearchCursor;
+import com.cnewbywa.item.model.ItemSearchQuery;
+import com.cnewbywa.item.model.ItemSummary;
+import com.cnewbywa.item.model.SerializedItemResponse;
 import com.cnewbywa.item.repository.ItemRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Transactional
+@Timed("item.service")
 @Slf4j
 public class ItemService {
 
@@ -32,35 +82,244 @@ public class ItemService {
     static final String EVENT_MESSAGE__MODIFY = "Item with id {0} was modified";
     static final String EVENT_MESSAGE__DELETE = "Item with id {0} was removed";
     
+    static final String MAPPING_METRIC_NAME = "item.mapping";
+    
+    static final String RESPONSE_CACHE_NAME = "item-response";
+    
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+	
+	@Value("${application.scroll.max-size}")
+	private int maxScrollSize;
+	
+	@Value("${application.bulk.max-size}")
+	private int maxBulkSize;
+	
+	@Value("${application.cache.response.enabled}")
+	private boolean responseCacheEnabled;
+	
 	@Autowired
 	private ItemRepository itemRepository;
 	
 	@Autowired
     private EventSender eventSender;
 	
-	@Cacheable("item")
+	@Autowired
+	private ItemListCacheKeys itemListCacheKeys;
+	
+	@Autowired
+	private ItemCountEstimator itemCountEstimator;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private AuditorAware<String> auditorAware;
+	
+	@Autowired
+	private ReadYourWritesTracker readYourWritesTracker;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	// mapping timers by type, registered on first use instead of on every mapping
+	private final ConcurrentMap<String, Timer> mappingTimers = new ConcurrentHashMap<>();
+	
+	@Transactional(readOnly = true)
+	@Cacheable(value = "item", sync = true)
 	public ItemDetailedResponseDto getItem(UUID id) {
-		Item item = itemRepository.findByItemId(id).orElseThrow(() -> new ItemNotFoundException("Item not found"));
+		readYourWritesTracker.markCachedRead();
 		
-		return createDetailedResponseDto(item);
+		ItemDetails item = itemRepository.findDetailsByItemId(id).orElseThrow(() -> new ItemNotFoundException("Item not found"));
+		
+		return recordMapping("item", () -> createDetailedResponseDto(item));
+	}
+	
+	/**
+	 * Get the items in the order of the ids. Cached items are read with one batch, the rest are loaded with one query and
+	 * then cached. Ids that are not found are flagged in the result.
+	 */
+	@Transactional(readOnly = true)
+	public List<ItemBatchResultDto> getItemsByIds(List<UUID> ids) {
+		checkBulkSize(ids.size());
+		
+		readYourWritesTracker.markCachedRead();
+		
+		List<UUID> distinctIds = ids.stream().distinct().toList();
+		
+		Cache cache = cacheManager.getCache("item");
+		
+		Map<UUID, ItemDetailedResponseDto> items = getCachedItems(cache, distinctIds);
+		
+		List<UUID> missingIds = distinctIds.stream().filter(id -> !items.containsKey(id)).toList();
+		
+		if (!missingIds.isEmpty()) {
+			Map<UUID, ItemDetailedResponseDto> loadedItems = recordMapping("batch", () -> itemRepository.findAllByItemIds(missingIds).stream()
+					.map(this::createDetailedResponseDto)
+					.collect(Collectors.toMap(ItemDetailedResponseDto::getId, Function.identity())));
+			
+			backfillItems(cache, loadedItems);
+			
+			items.putAll(loadedItems);
+		}
+		
+		return ids.stream()
+				.map(id -> ItemBatchResultDto.builder().id(id).found(items.containsKey(id)).item(items.get(id)).build())
+				.toList();
+	}
+	
+	@Transactional(readOnly = true)
+	@Cacheable(value = "items", key = "@itemListCacheKeys.global(#pageable, #countMode)", sync = true)
+	public ItemListResponseDto getItems(Pageable pageable, CountMode countMode) {
+		readYourWritesTracker.markCachedRead();
+		
+		if (countMode == CountMode.EXACT) {
+			Page<ItemSummary> page = itemRepository.findPageBy(pageable);
+			
+			return createListResponseDto(page, page.getTotalElements(), false);
+		}
+		
+		Slice<ItemSummary> slice = itemRepository.findSliceBy(pageable);
+		
+		return countMode == CountMode.ESTIMATED
+				? createListResponseDto(slice, itemCountEstimator.estimateTotal(), true)
+				: createListResponseDto(slice, null, false);
 	}
 	
-	@Cacheable("items")
-	public ItemListResponseDto getItems(Pageable pageable) {
-		Page<Item> page = itemRepository.findAll(pageable);
+	@Transactional(readOnly = true)
+	@Cacheable(value = "items", key = "@itemListCacheKeys.user(#user, #pageable, #countMode)", sync = true)
+	public ItemListResponseDto getItemsByUser(String user, Pageable pageable, CountMode countMode) {
+		readYourWritesTracker.markCachedRead();
 		
-		List<ItemResponseDto> responses = page.getContent().stream().map(this::createResponseDto).toList();
+		if (countMode == CountMode.EXACT) {
+			Page<ItemSummary> page = itemRepository.findAllByCreatedBy(user, pageable);
+			
+			return createListResponseDto(page, page.getTotalElements(), false);
+		}
 		
-		return ItemListResponseDto.builder().amount(page.getNumberOfElements()).totalAmount(page.getTotalElements()).items(responses).build();
+		Slice<ItemSummary> slice = itemRepository.findSliceByCreatedBy(user, pageable);
+		
+		return countMode == CountMode.ESTIMATED
+				? createListResponseDto(slice, itemCountEstimator.estimateTotalByUser(user), true)
+				: createListResponseDto(slice, null, false);
+	}
+	
+	// only reads Redis, so no transaction or connection is needed
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public String getListVersion() {
+		return itemListCacheKeys.getGlobalGeneration();
+	}
+	
+	@Transactional(readOnly = true)
+	public ItemScrollResponseDto scrollItems(String cursor, int size) {
+		int limit = getScrollLimit(size);
+		
+		List<ItemSummary> items = cursor == null
+				? itemRepository.findFirstKeysetPage(limit + 1)
+				: findKeysetPageAfter(ItemCursor.decode(cursor), limit);
+		
+		return createScrollResponseDto(items, limit);
+	}
+	
+	@Transactional(readOnly = true)
+	public ItemScrollResponseDto scrollItemsByUser(String user, String cursor, int size) {
+		int limit = getScrollLimit(size);
+		
+		List<ItemSummary> items = cursor == null
+				? itemRepository.findFirstKeysetPageByCreatedBy(user, limit + 1)
+				: findKeysetPageByCreatedByAfter(user, ItemCursor.decode(cursor), limit);
+		
+		return createScrollResponseDto(items, limit);
+	}
+	
+	/**
+	 * Full-text search over the name and description of the items, best matches first
+	 */
+	@Transactional(readOnly = true)
+	@Cacheable(value = "search", key = "@itemListCacheKeys.search(#query, #cursor, #size)", sync = true)
+	public ItemScrollResponseDto searchItems(ItemSearchQuery query, String cursor, int size) {
+		readYourWritesTracker.markCachedRead();
+		
+		int limit = getScrollLimit(size);
+		
+		List<ItemRank> ranks = cursor == null
+				? itemRepository.findFirstSearchPage(query.text(), limit + 1)
+				: findSearchPageAfter(query, ItemSearchCursor.decode(cursor), limit);
+		
+		boolean hasNext = ranks.size() > limit;
+		
+		List<ItemRank> pageRanks = hasNext ? ranks.subList(0, limit) : ranks;
+		
+		Map<Long, ItemSummary> items = itemRepository.findSummariesByIdIn(pageRanks.stream().map(ItemRank::getId).toList()).stream()
+				.collect(Collectors.toMap(ItemSummary::getId, Function.identity()));
+		
+		// items deleted after the ranking query are left out
+		List<ItemResponseDto> responses = recordMapping("search", () -> pageRanks.stream()
+				.map(rank -> items.get(rank.getId()))
+				.filter(Objects::nonNull)
+				.map(this::createResponseDto)
+				.toList());
+		
+		String nextCursor = hasNext ? ItemSearchCursor.of(pageRanks.get(limit - 1)).encode() : null;
+		
+		return ItemScrollResponseDto.builder().amount(responses.size()).nextCursor(nextCursor).items(responses).build();
+	}
+	
+	/**
+	 * Find the items whose name starts with the prefix, in name order
+	 */
+	@Transactional(readOnly = true)
+	@Cacheable(value = "search", key = "@itemListCacheKeys.suggest(#prefix, #size)", sync = true)
+	public ItemScrollResponseDto suggestItems(ItemSearchQuery prefix, int size) {
+		readYourWritesTracker.markCachedRead();
+		
+		List<ItemSummary> items = itemRepository.findByNamePrefix(prefix.text(), prefix.upperBound(), getScrollLimit(size));
+		
+		List<ItemResponseDto> responses = recordMapping("suggest", () -> items.stream().map(this::createResponseDto).toList());
+		
+		return ItemScrollResponseDto.builder().amount(responses.size()).items(responses).build();
 	}
 	
-	@Cacheable("items")
-	public ItemListResponseDto getItemsByUser(String user, Pageable pageable) {
-		Page<Item> page = itemRepository.findAllByCreatedBy(user, pageable);
+	/**
+	 * Write all items as newline delimited JSON. Items are read with a database cursor and detached after writing,
+	 * so the memory use does not depend on the amount of items.
+	 * 
+	 * @param outputStream
+	 * @param gzip
+	 * @throws IOException
+	 */
+	@Transactional(readOnly = true)
+	public void exportItems(OutputStream outputStream, boolean gzip) throws IOException {
+		// the export holds its connection for the whole download
+		ConcurrencyLimitingDataSource.exemptCurrentTransaction();
+		
+		OutputStream target = gzip ? new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE) : new BufferedOutputStream(outputStream, EXPORT_BUFFER_SIZE);
+		
+		ObjectWriter writer = objectMapper.writerFor(ItemDetailedResponseDto.class);
+		
+		try (Stream<Item> items = itemRepository.streamAll()) {
+			Iterator<Item> iterator = items.iterator();
+			
+			while (iterator.hasNext()) {
+				Item item = iterator.next();
+				
+				target.write(writer.writeValueAsBytes(createDetailedResponseDto(item)));
+				target.write('\n');
+				
+				entityManager.detach(item);
+			}
+		}
 		
-		List<ItemResponseDto> responses = page.getContent().stream().map(this::createResponseDto).toList();
+		if (target instanceof GZIPOutputStream gzipOutputStream) {
+			gzipOutputStream.finish();
+		}
 		
-		return ItemListResponseDto.builder().amount(page.getNumberOfElements()).totalAmount(page.getTotalElements()).items(responses).build();
+		target.flush();
 	}
 	
 	public ItemDetailedResponseDto addItem(ItemDto itemDto, String user) {
@@ -68,33 +327,315 @@ public class ItemService {
 		
 		Item item = itemRepository.save(Item.builder().name(itemDto.getName()).description(itemDto.getDescription()).build());
 		
-		eventSender.sendEvent(item.getItemId(), ItemAction.ADD, MessageFormat.format(EVENT_MESSAGE__ADD, item.getItemId()));
+		eventSender.sendEvent(item.getItemId(), item.getVersion(), ItemAction.ADD, MessageFormat.format(EVENT_MESSAGE__ADD, item.getItemId()));
+		
+		itemListCacheKeys.bumpGenerations(user);
+		readYourWritesTracker.recordWrite(user);
+		cacheItemsAfterCommit(List.of(item));
 		
 		return createDetailedResponseDto(item);
 	}
 	
-	@CacheEvict(value = "item", key = "#id")
-	public ItemDetailedResponseDto updateItem(UUID id, ItemDto itemDto, String user) {
-		Item dbItem = itemRepository.findByItemId(id).orElseThrow(() -> new ItemNotFoundException("Item not found"));
-		
-		dbItem.setName(itemDto.getName());
-		dbItem.setDescription(itemDto.getDescription());
+	/**
+	 * Update the item
+	 *
+	 * @param expectedVersion version the client expects the item to have, null if any version can be updated
+	 */
+	public ItemDetailedResponseDto updateItem(UUID id, ItemDto itemDto, String user, Long expectedVersion) {
+		// the version check, the version increment and the audit fields are handled by the update statement, which returns the updated row
+		Item item = itemRepository.updateByItemId(id, itemDto.getName(), itemDto.getDescription(), Instant.now(), getCurrentAuditor(), expectedVersion)
+				.orElseThrow(() -> expectedVersion != null && itemRepository.existsByItemId(id)
+						? new PreconditionFailedException("Item has been modified")
+						: new ItemNotFoundException("Item not found"));
 		
-		Item item = itemRepository.save(dbItem);
+		eventSender.sendEvent(id, item.getVersion(), ItemAction.MODIFY, MessageFormat.format(EVENT_MESSAGE__MODIFY, id));
 		
-		eventSender.sendEvent(id, ItemAction.MODIFY, MessageFormat.format(EVENT_MESSAGE__MODIFY, id));
+		itemListCacheKeys.bumpGenerations(item.getCreatedBy());
+		readYourWritesTracker.recordWrite(user);
+		evictItemsAfterCommit(List.of(id));
 		
 		return createDetailedResponseDto(item);
 	}
 	
-	@CacheEvict(value = "item", key = "#id")
 	public void deleteItem(UUID id, String user) {
-		itemRepository.deleteByItemId(id);
+		Optional<ItemOwner> owner = itemRepository.deleteByItemId(id);
+		
+		if (owner.isEmpty()) {
+			return;
+		}
+		
+		eventSender.sendEvent(id, owner.get().getVersion() + 1, ItemAction.DELETE, MessageFormat.format(EVENT_MESSAGE__DELETE, id));
+		
+		itemListCacheKeys.bumpGenerations(owner.get().getCreatedBy());
+		readYourWritesTracker.recordWrite(user);
+		evictItemsAfterCommit(List.of(id));
+	}
+	
+	public List<ItemDetailedResponseDto> addItems(List<ItemDto> itemDtos, String user) {
+		checkBulkSize(itemDtos.size());
+		
+		List<Item> items = itemRepository.saveAll(itemDtos.stream()
+				.map(itemDto -> Item.builder().name(itemDto.getName()).description(itemDto.getDescription()).build())
+				.toList());
+		
+		items.forEach(item -> eventSender.sendEvent(item.getItemId(), item.getVersion(), ItemAction.ADD, MessageFormat.format(EVENT_MESSAGE__ADD, item.getItemId())));
 		
-		eventSender.sendEvent(id, ItemAction.DELETE, MessageFormat.format(EVENT_MESSAGE__DELETE, id));
+		itemListCacheKeys.bumpGenerations(user);
+		readYourWritesTracker.recordWrite(user);
+		cacheItemsAfterCommit(items);
+		
+		return items.stream().map(this::createDetailedResponseDto).toList();
+	}
+	
+	public List<ItemDetailedResponseDto> updateItems(List<ItemBulkUpdateDto> itemDtos, String user) {
+		checkBulkSize(itemDtos.size());
+		
+		Map<UUID, Item> dbItems = itemRepository.findAllByItemIdIn(itemDtos.stream().map(ItemBulkUpdateDto::getId).toList()).stream()
+				.collect(Collectors.toMap(Item::getItemId, Function.identity()));
+		
+		List<Item> changedItems = itemDtos.stream().map(itemDto -> {
+			Item dbItem = dbItems.get(itemDto.getId());
+			
+			if (dbItem == null) {
+				throw new ItemNotFoundException("Item not found");
+			}
+			
+			dbItem.setName(itemDto.getName());
+			dbItem.setDescription(itemDto.getDescription());
+			
+			return dbItem;
+		}).toList();
+		
+		// flushing runs the updates as one JDBC batch and fills in the audit fields for the response
+		List<Item> items = itemRepository.saveAllAndFlush(changedItems);
+		
+		items.forEach(item -> eventSender.sendEvent(item.getItemId(), item.getVersion(), ItemAction.MODIFY, MessageFormat.format(EVENT_MESSAGE__MODIFY, item.getItemId())));
+		
+		bumpGenerations(items);
+		readYourWritesTracker.recordWrite(user);
+		evictItemsAfterCommit(items.stream().map(Item::getItemId).toList());
+		
+		return items.stream().map(this::createDetailedResponseDto).toList();
+	}
+	
+	public void deleteItems(List<UUID> ids, String user) {
+		checkBulkSize(ids.size());
+		
+		List<Item> items = itemRepository.findAllByItemIdIn(ids);
+		
+		if (items.isEmpty()) {
+			return;
+		}
+		
+		itemRepository.deleteAllByIdInBatch(items.stream().map(Item::getId).toList());
+		
+		// the delete is newer than the last modification, so it gets the next version
+		items.forEach(item -> eventSender.sendEvent(item.getItemId(), item.getVersion() + 1, ItemAction.DELETE, MessageFormat.format(EVENT_MESSAGE__DELETE, item.getItemId())));
+		
+		bumpGenerations(items);
+		readYourWritesTracker.recordWrite(user);
+		evictItemsAfterCommit(items.stream().map(Item::getItemId).toList());
+	}
+	
+	private String getCurrentAuditor() {
+		return auditorAware.getCurrentAuditor().orElse(null);
+	}
+	
+	private void checkBulkSize(int size) {
+		if (size > maxBulkSize) {
+			throw new BulkLimitExceededException("Too many items, the maximum is " + maxBulkSize);
+		}
+	}
+	
+	/**
+	 * Put the created items to the item cache after the current transaction has been committed, so that a rolled back write is never cached.
+	 * The responses are created only then, as the audit fields and the version are set when the changes are flushed.
+	 * <p>
+	 * Only new items are put, as there is no older version of them that a concurrent write could put after this one.
+	 */
+	private void cacheItemsAfterCommit(List<Item> items) {
+		Cache cache = cacheManager.getCache("item");
+		Cache responseCache = getResponseCache();
+		
+		if (cache == null) {
+			return;
+		}
+		
+		runAfterCommit(() -> cacheItems(cache, responseCache, items));
+	}
+	
+	/**
+	 * Evict the updated or deleted items from the item caches after the current transaction has been committed, so that a read made
+	 * before the commit cannot put the old version back. Updated items are not put to the caches, since the put of a concurrent update
+	 * of the same item could be made after this one and leave its older version cached. The next read loads the item again.
+	 */
+	private void evictItemsAfterCommit(List<UUID> ids) {
+		Cache cache = cacheManager.getCache("item");
+		Cache responseCache = getResponseCache();
+		
+		runAfterCommit(() -> ids.forEach(id -> {
+			if (cache != null) {
+				evictItem(cache, id);
+			}
+			
+			if (responseCache != null) {
+				evictItem(responseCache, id);
+			}
+		}));
+	}
+	
+	private void runAfterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+	
+	private void cacheItems(Cache cache, Cache responseCache, List<Item> items) {
+		for (Item item : items) {
+			try {
+				ItemDetailedResponseDto response = createDetailedResponseDto(item);
+				
+				cache.put(item.getItemId(), response);
+				
+				if (responseCache != null) {
+					responseCache.put(item.getItemId(), createSerializedResponse(response));
+				}
+			} catch (RuntimeException e) {
+				log.error("Error caching item " + item.getItemId(), e);
+				
+				// a partly cached item must not stay in the caches
+				evictItem(cache, item.getItemId());
+				
+				if (responseCache != null) {
+					evictItem(responseCache, item.getItemId());
+				}
+			}
+		}
+	}
+	
+	private Cache getResponseCache() {
+		return responseCacheEnabled ? cacheManager.getCache(RESPONSE_CACHE_NAME) : null;
+	}
+	
+	private void evictItem(Cache cache, UUID id) {
+		try {
+			cache.evict(id);
+		} catch (RuntimeException e) {
+			log.error("Error evicting item " + id + " from cache", e);
+		}
+	}
+	
+	private Map<UUID, ItemDetailedResponseDto> getCachedItems(Cache cache, List<UUID> ids) {
+		Map<UUID, ItemDetailedResponseDto> items = new HashMap<>();
+		
+		if (cache == null) {
+			return items;
+		}
+		
+		try {
+			BatchCache.getAll(cache, ids).forEach((key, value) -> {
+				if (key instanceof UUID id && value instanceof ItemDetailedResponseDto item) {
+					items.put(id, item);
+				}
+			});
+		} catch (RuntimeException e) {
+			log.error("Error reading items from cache", e);
+		}
+		
+		return items;
+	}
+	
+	private void backfillItems(Cache cache, Map<UUID, ItemDetailedResponseDto> items) {
+		if (cache == null || items.isEmpty()) {
+			return;
+		}
+		
+		try {
+			BatchCache.putAllIfAbsent(cache, items);
+		} catch (RuntimeException e) {
+			log.error("Error caching items", e);
+		}
+	}
+	
+	private void bumpGenerations(List<Item> items) {
+		items.stream().map(Item::getCreatedBy).filter(Objects::nonNull).distinct().forEach(itemListCacheKeys::bumpGenerations);
+	}
+	
+	private ItemListResponseDto createListResponseDto(Slice<ItemSummary> slice, Long totalAmount, boolean totalAmountEstimated) {
+		List<ItemResponseDto> responses = recordMapping("list", () -> slice.getContent().stream().map(this::createResponseDto).toList());
+		
+		return ItemListResponseDto.builder()
+				.amount(slice.getNumberOfElements())
+				.totalAmount(totalAmount)
+				.totalAmountEstimated(totalAmountEstimated)
+				.hasNext(slice.hasNext())
+				.items(responses).build();
+	}
+	
+	private List<ItemSummary> findKeysetPageAfter(ItemCursor cursor, int limit) {
+		return itemRepository.findKeysetPageAfter(cursor.createTime(), cursor.id(), limit + 1);
+	}
+	
+	private List<ItemSummary> findKeysetPageByCreatedByAfter(String user, ItemCursor cursor, int limit) {
+		return itemRepository.findKeysetPageByCreatedByAfter(user, cursor.createTime(), cursor.id(), limit + 1);
+	}
+	
+	private List<ItemRank> findSearchPageAfter(ItemSearchQuery query, ItemSearchCursor cursor, int limit) {
+		return itemRepository.findSearchPageAfter(query.text(), cursor.rank(), cursor.id(), limit + 1);
+	}
+	
+	private int getScrollLimit(int size) {
+		return Math.max(1, Math.min(size, maxScrollSize));
+	}
+	
+	// one extra row is fetched to find out whether there is a next page
+	private ItemScrollResponseDto createScrollResponseDto(List<ItemSummary> items, int limit) {
+		boolean hasNext = items.size() > limit;
+		
+		List<ItemSummary> pageItems = hasNext ? items.subList(0, limit) : items;
+		
+		List<ItemResponseDto> responses = recordMapping("scroll", () -> pageItems.stream().map(this::createResponseDto).toList());
+		
+		String nextCursor = hasNext ? ItemCursor.of(pageItems.get(limit - 1)).encode() : null;
+		
+		return ItemScrollResponseDto.builder().amount(responses.size()).nextCursor(nextCursor).items(responses).build();
+	}
+	
+	private <T> T recordMapping(String type, Supplier<T> mapping) {
+		return mappingTimers.computeIfAbsent(type, key -> Timer.builder(MAPPING_METRIC_NAME)
+				.tag("type", key)
+				.register(meterRegistry))
+				.record(mapping);
+	}
+	
+	SerializedItemResponse createSerializedResponse(ItemDetailedResponseDto item) {
+		try {
+			return new SerializedItemResponse(objectMapper.writeValueAsBytes(item), SerializedItemResponse.eTag(item.getVersion()));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize item " + item.getId(), e);
+		}
+	}
+	
+	ItemDetailedResponseDto createDetailedResponseDto(Item item) {
+		return ItemDetailedResponseDto.builder()
+				.id(item.getItemId())
+				.name(item.getName())
+				.description(item.getDescription())
+				.createTime(item.getCreateTime())
+				.updateTime(item.getUpdateTime())
+				.createdBy(item.getCreatedBy())
+				.modifiedBy(item.getModifiedBy())
+				.version(item.getVersion()).build();
 	}
 	
-	private ItemDetailedResponseDto createDetailedResponseDto(Item item) {
+	ItemDetailedResponseDto createDetailedResponseDto(ItemDetails item) {
 		return ItemDetailedResponseDto.builder()
 				.id(item.getItemId())
 				.name(item.getName())
@@ -102,10 +643,11 @@ public class ItemService {
 				.createTime(item.getCreateTime())
 				.updateTime(item.getUpdateTime())
 				.createdBy(item.getCreatedBy())
-				.modifiedBy(item.getModifiedBy()).build();
+				.modifiedBy(item.getModifiedBy())
+				.version(item.getVersion()).build();
 	}
 	
-	private ItemResponseDto createResponseDto(Item item) {
+	ItemResponseDto createResponseDto(ItemSummary item) {
 		return ItemResponseDto.builder()
 				.id(item.getItemId())
 				.name(item.getName())
@@ -0,0 +1,280 @@
+package com.cnewbywa.item.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cnewbywa.events.EventMessage;
+import com.cnewbywa.item.model.OutboxEvent;
+import com.cnewbywa.item.repository.OutboxEventRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Relays events from the outbox table to Kafka. Events are removed from the outbox only after Kafka has acknowledged them,
+ * so every event is delivered at least once.
+ * <p>
+ * The relay runs periodically and, when requested, right after events have been committed. Writes never wait for Kafka,
+ * the outbox works as the queue between them. Only the node holding the relay lease relays events. The events are read and
+ * deleted in short transactions, so no transaction or connection is held while waiting for Kafka.
+ * <p>
+ * Events are keyed by the item id, so the events of an item go to the same partition while different items are spread over
+ * all partitions. The events are sent in outbox id order, which is not the commit order when the events of an item are
+ * written by different nodes (each node allocates ids from its own block of the sequence). Consumers order the events of an
+ * item by the version sent in the {@value #ITEM_VERSION_HEADER} header.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+	// a requested relay that finds the lease taken is tried once more after this many milliseconds, after that the events
+	// are left to the scheduled poll
+	static final long LEASE_RETRY_DELAY = 100;
+	
+	static final String ITEM_VERSION_HEADER = "item-version";
+	
+	static final String SEND_METRIC_NAME = "item.events.send";
+	static final String BACKLOG_METRIC_NAME = "item.events.outbox.backlog";
+	
+	@Value("${application.events.topic}")
+    private String eventTopic;
+	
+	@Value("${application.id}")
+    private String applicationId;
+	
+	@Value("${application.events.outbox.batch-size}")
+	private int batchSize;
+	
+	@Value("${application.events.outbox.send-timeout}")
+	private long sendTimeout;
+	
+	@Value("${application.events.outbox.max-backlog}")
+	private long maxBacklog;
+	
+	@Autowired
+	private OutboxEventRepository outboxEventRepository;
+	
+	@Autowired
+    private KafkaTemplate<String, EventMessage> kafkaTemplate;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Autowired
+	@Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+	private TaskExecutor taskExecutor;
+	
+	@Autowired
+	private TaskScheduler taskScheduler;
+	
+	// one relay at a time on this node, the lease only keeps the other nodes out
+	private final ReentrantLock relayLock = new ReentrantLock();
+	
+	private final AtomicBoolean relayRequested = new AtomicBoolean();
+	
+	private final AtomicBoolean passRequested = new AtomicBoolean();
+	
+	private final AtomicLong backlog = new AtomicLong();
+	
+	private Timer sendSuccesses;
+	private Timer sendFailures;
+	
+	@PostConstruct
+	void init() {
+		Gauge.builder(BACKLOG_METRIC_NAME, backlog, AtomicLong::get).register(meterRegistry);
+		
+		sendSuccesses = createSendTimer("success");
+		sendFailures = createSendTimer("failure");
+	}
+	
+	@Scheduled(fixedDelayString = "${application.events.outbox.poll-interval}")
+	public void relayEvents() {
+		relay();
+	}
+	
+	/**
+	 * Relay the events without waiting for the next poll. Requests made while a relay is waiting to start are coalesced.
+	 */
+	public void requestRelay() {
+		requestRelay(true);
+	}
+	
+	private void requestRelay(boolean retry) {
+		if (relayRequested.compareAndSet(false, true)) {
+			taskExecutor.execute(() -> {
+				relayRequested.set(false);
+				
+				try {
+					if (!relay() && retry) {
+						// the node holding the lease may have read the outbox before the requested events were committed
+						taskScheduler.schedule(() -> requestRelay(false), Instant.now().plusMillis(LEASE_RETRY_DELAY));
+					}
+				} catch (RuntimeException e) {
+					log.error("Error relaying events, the events will be retried", e);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Count an event committed to the outbox, so that the backlog stays up to date between the relays
+	 */
+	public void eventAdded() {
+		backlog.incrementAndGet();
+	}
+	
+	/**
+	 * Check whether the outbox holds the maximum backlog of events. The backlog is counted after each relay and kept up to date
+	 * as this node adds and relays events.
+	 */
+	public boolean isBacklogFull() {
+		return backlog.get() >= maxBacklog;
+	}
+	
+	/**
+	 * Relay the events in batches while this call holds the relay lease. If a relay is already running on this node, it makes
+	 * one more pass instead, for the events committed after it read the outbox.
+	 *
+	 * @return false if another node holds the lease
+	 */
+	boolean relay() {
+		if (!relayLock.tryLock()) {
+			passRequested.set(true);
+			
+			return true;
+		}
+		
+		try {
+			// the owner is unique per call, so a lease is only renewed and released by the call that acquired it
+			String owner = UUID.randomUUID().toString();
+			
+			boolean leased = acquireLease(owner);
+			
+			if (leased) {
+				try {
+					boolean morePasses;
+					
+					do {
+						passRequested.set(false);
+						
+						morePasses = relayBatch() == batchSize || passRequested.get();
+					} while (morePasses && acquireLease(owner));
+				} finally {
+					transactionTemplate.executeWithoutResult(status -> outboxEventRepository.releaseLease(owner));
+				}
+			}
+			
+			// counted on the primary, a lagging replica would hide the events added since
+			Long count = transactionTemplate.execute(status -> outboxEventRepository.countBacklog(maxBacklog));
+			
+			if (count != null) {
+				backlog.set(count);
+			}
+			
+			return leased;
+		} finally {
+			relayLock.unlock();
+		}
+	}
+	
+	// acquires or renews the lease, which lasts long enough for one batch
+	private boolean acquireLease(String owner) {
+		return Boolean.TRUE.equals(transactionTemplate.execute(status -> outboxEventRepository.acquireLease(owner, sendTimeout * 2) == 1));
+	}
+	
+	private int relayBatch() {
+		List<OutboxEvent> events = transactionTemplate.execute(status -> outboxEventRepository.findOldest(batchSize));
+		
+		if (events == null || events.isEmpty()) {
+			return 0;
+		}
+		
+		log.debug("Relaying {} events to topic {}...", events.size(), eventTopic);
+		
+		// time from the first send until Kafka has acknowledged the whole batch
+		Timer.Sample sample = Timer.start();
+		
+		CompletableFuture<?>[] futures = events.stream()
+				.map(event -> kafkaTemplate.send(createRecord(event)))
+				.toArray(CompletableFuture[]::new);
+		
+		kafkaTemplate.flush();
+		
+		try {
+			CompletableFuture.allOf(futures).get(sendTimeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			return 0;
+		} catch (ExecutionException | TimeoutException e) {
+			log.error("Error relaying events, the events will be retried", e);
+			sample.stop(sendFailures);
+			
+			return 0;
+		}
+		
+		sample.stop(sendSuccesses);
+		
+		transactionTemplate.executeWithoutResult(status -> outboxEventRepository.deleteAllByIdInBatch(events.stream().map(OutboxEvent::getId).toList()));
+		backlog.updateAndGet(count -> Math.max(0, count - events.size()));
+		
+		log.debug("Events relayed successfully");
+		
+		return events.size();
+	}
+	
+	private Timer createSendTimer(String outcome) {
+		return Timer.builder(SEND_METRIC_NAME)
+				.tag("outcome", outcome)
+				.register(meterRegistry);
+	}
+	
+	ProducerRecord<String, EventMessage> createRecord(OutboxEvent event) {
+		RecordHeaders headers = new RecordHeaders();
+		
+		// events stored before the version was added to the outbox have no version
+		if (event.getItemVersion() != null) {
+			headers.add(ITEM_VERSION_HEADER, event.getItemVersion().toString().getBytes(StandardCharsets.UTF_8));
+		}
+		
+		return new ProducerRecord<>(eventTopic, null, event.getItemId().toString(), createEventMessage(event), headers);
+	}
+	
+	EventMessage createEventMessage(OutboxEvent event) {
+		return new EventMessage(
+				event.getEventId(),
+				event.getItemId().toString(),
+				event.getAction().toString(),
+				event.getMessage(),
+				event.getCreateTime(),
+				applicationId);
+	}
+}
@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS item.outbox_relay_lease (
+    id int PRIMARY KEY,
+    owner VARCHAR(40),
+    expire_time TIMESTAMPTZ NOT NULL);
+
+INSERT INTO item.outbox_relay_lease (id, owner, expire_time) VALUES (1, NULL, now()) ON CONFLICT (id) DO NOTHING;
\ No newline at end of file
@@ -0,0 +1,5 @@
+CREATE INDEX IF NOT EXISTS idx_item_create_time_id ON item.item(create_time, id);
+
+CREATE INDEX IF NOT EXISTS idx_item_created_by_create_time_id ON item.item(created_by, create_time, id);
+
+DROP INDEX IF EXISTS item.idx_item_created_by;
\ No newline at end of file
@@ -0,0 +1,9 @@
+CREATE SEQUENCE IF NOT EXISTS item.event_outbox_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS item.event_outbox (
+    id bigint PRIMARY KEY,
+    event_id VARCHAR(40) NOT NULL,
+    item_id uuid NOT NULL,
+    action VARCHAR(20) NOT NULL,
+    message VARCHAR(200),
+    create_time TIMESTAMPTZ NOT NULL);
\ No newline at end of file
@@ -0,0 +1,8 @@
+ALTER TABLE item.item ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS item.item_seq INCREMENT BY 50;
+-- Hibernate's pooled optimizer uses the 50 ids below each sequence value, so start one full block above the current ids
+SELECT setval('item.item_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM item.item));
+
+ALTER TABLE item.item ALTER COLUMN id SET DEFAULT nextval('item.item_seq');
+ALTER SEQUENCE item.item_seq OWNED BY item.item.id;
\ No newline at end of file
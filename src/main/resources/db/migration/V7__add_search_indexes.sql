@@ -0,0 +1,8 @@
+-- weighted so that matches in the name rank above matches in the description
+ALTER TABLE item.item ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (setweight(to_tsvector('simple', coalesce(name, '')), 'A') || setweight(to_tsvector('simple', coalesce(description, '')), 'B')) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_item_search_vector ON item.item USING GIN (search_vector);
+
+-- byte order collation lets name prefix lookups run as an index range scan in index order
+CREATE INDEX IF NOT EXISTS idx_item_name_prefix_id ON item.item ((lower(name) COLLATE "C"), id);
@@ -0,0 +1 @@
+ALTER TABLE item.event_outbox ADD COLUMN IF NOT EXISTS item_version bigint;
\ No newline at end of file
@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS item.cache_warmup_key (
+    cache_key VARCHAR(500) PRIMARY KEY,
+    hits bigint NOT NULL,
+    update_time TIMESTAMPTZ NOT NULL);
+
+CREATE INDEX IF NOT EXISTS idx_cache_warmup_key_update_time_hits ON item.cache_warmup_key(update_time, hits);
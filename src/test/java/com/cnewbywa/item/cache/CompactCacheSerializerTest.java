@@ -0,0 +1,108 @@
+package com.cnewbywa.item.cache;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import com.cnewbywa.item.model.ItemListResponseDto;
+import com.cnewbywa.item.model.ItemResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+class CompactCacheSerializerTest {
+
+	private GenericJackson2JsonRedisSerializer jsonSerializer;
+	
+	private CompactCacheSerializer<ItemListResponseDto> serializer;
+	
+	@BeforeEach
+	void setup() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+		objectMapper.registerModule(new JavaTimeModule());
+		
+		jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+		serializer = new CompactCacheSerializer<>(ItemListResponseDto.class, jsonSerializer, 1024, true);
+	}
+	
+	@Test
+	void testRoundTrip_Uncompressed() {
+		ItemListResponseDto value = createList(2);
+		
+		byte[] bytes = serializer.serialize(value);
+		
+		Assertions.assertEquals(CompactCacheSerializer.FORMAT_SMILE, bytes[0]);
+		assertListEquals(value, (ItemListResponseDto) serializer.deserialize(bytes));
+	}
+	
+	@Test
+	void testRoundTrip_Compressed() {
+		ItemListResponseDto value = createList(100);
+		
+		byte[] bytes = serializer.serialize(value);
+		
+		Assertions.assertEquals(CompactCacheSerializer.FORMAT_SMILE_DEFLATED, bytes[0]);
+		Assertions.assertTrue(bytes.length < jsonSerializer.serialize(value).length / 2);
+		assertListEquals(value, (ItemListResponseDto) serializer.deserialize(bytes));
+	}
+	
+	@Test
+	void testDeserialize_JsonEntry() {
+		ItemListResponseDto value = createList(2);
+		
+		assertListEquals(value, (ItemListResponseDto) serializer.deserialize(jsonSerializer.serialize(value)));
+	}
+	
+	@Test
+	void testSerialize_CompactDisabled() {
+		CompactCacheSerializer<ItemListResponseDto> readOnlySerializer = new CompactCacheSerializer<>(ItemListResponseDto.class, jsonSerializer, 1024, false);
+		ItemListResponseDto value = createList(2);
+		
+		byte[] bytes = readOnlySerializer.serialize(value);
+		
+		// nodes without the compact format can read the entry
+		assertListEquals(value, (ItemListResponseDto) jsonSerializer.deserialize(bytes));
+		assertListEquals(value, (ItemListResponseDto) readOnlySerializer.deserialize(serializer.serialize(value)));
+	}
+	
+	@Test
+	void testSerialize_OtherType() {
+		byte[] bytes = serializer.serialize(NullValue.INSTANCE);
+		
+		Assertions.assertEquals(NullValue.INSTANCE, serializer.deserialize(bytes));
+	}
+	
+	private ItemListResponseDto createList(int size) {
+		return ItemListResponseDto.builder()
+				.items(IntStream.range(0, size).mapToObj(index -> ItemResponseDto.builder()
+						.id(UUID.randomUUID())
+						.name("Item " + index)
+						.createTime(Instant.now())
+						.createdBy("test.user")
+						.build()).toList())
+				.amount(size)
+				.totalAmount(1000L)
+				.hasNext(true)
+				.build();
+	}
+	
+	private void assertListEquals(ItemListResponseDto expected, ItemListResponseDto actual) {
+		Assertions.assertEquals(expected.getAmount(), actual.getAmount());
+		Assertions.assertEquals(expected.getTotalAmount(), actual.getTotalAmount());
+		Assertions.assertEquals(expected.isHasNext(), actual.isHasNext());
+		Assertions.assertEquals(expected.getItems().size(), actual.getItems().size());
+		
+		for (int i = 0; i < expected.getItems().size(); i++) {
+			Assertions.assertEquals(expected.getItems().get(i).getId(), actual.getItems().get(i).getId());
+			Assertions.assertEquals(expected.getItems().get(i).getName(), actual.getItems().get(i).getName());
+			Assertions.assertEquals(expected.getItems().get(i).getCreateTime(), actual.getItems().get(i).getCreateTime());
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.cnewbywa.item.cache;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.cnewbywa.item.model.SerializedItemResponse;
+
+class SerializedResponseSerializerTest {
+
+	private SerializedResponseSerializer serializer;
+	
+	@BeforeEach
+	void setup() {
+		serializer = new SerializedResponseSerializer(new GenericJackson2JsonRedisSerializer());
+	}
+	
+	@Test
+	void testRoundTrip() {
+		byte[] body = "{\"name\":\"Item 1\"}".getBytes(StandardCharsets.UTF_8);
+		
+		byte[] bytes = serializer.serialize(new SerializedItemResponse(body, "\"3\""));
+		
+		Assertions.assertEquals(SerializedResponseSerializer.FORMAT_RAW, bytes[0]);
+		
+		SerializedItemResponse response = (SerializedItemResponse) serializer.deserialize(bytes);
+		
+		Assertions.assertArrayEquals(body, response.body());
+		Assertions.assertEquals("\"3\"", response.eTag());
+	}
+	
+	@Test
+	void testRoundTrip_NoETag() {
+		byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+		
+		SerializedItemResponse response = (SerializedItemResponse) serializer.deserialize(serializer.serialize(new SerializedItemResponse(body, null)));
+		
+		Assertions.assertArrayEquals(body, response.body());
+		Assertions.assertNull(response.eTag());
+	}
+	
+	@Test
+	void testRoundTrip_NullValue() {
+		Assertions.assertEquals(NullValue.INSTANCE, serializer.deserialize(serializer.serialize(NullValue.INSTANCE)));
+	}
+	
+	@Test
+	void testDeserialize_Truncated() {
+		Assertions.assertThrows(SerializationException.class, () -> {
+			serializer.deserialize(new byte[] { SerializedResponseSerializer.FORMAT_RAW, 0, 0, 0, 10, 'a' });
+		});
+	}
+}
@@ -0,0 +1,143 @@
+package com.cnewbywa.item.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache.ValueRetrievalException;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class SingleFlightCacheTest {
+
+	@Mock
+	private StringRedisTemplate redisTemplate;
+	
+	@Mock
+	private ValueOperations<String, String> valueOperations;
+	
+	private ConcurrentMapCache remoteCache;
+	
+	private MeterRegistry meterRegistry;
+	
+	private UUID item1Id = UUID.randomUUID();
+	
+	@BeforeEach
+	void setup() {
+		remoteCache = new ConcurrentMapCache("item");
+		meterRegistry = new SimpleMeterRegistry();
+	}
+	
+	@Test
+	void testGet_ConcurrentMissesShareOneLoad() throws Exception {
+		SingleFlightCache cache = createCache(Duration.ZERO, 0);
+		
+		AtomicInteger loadCount = new AtomicInteger();
+		CountDownLatch loadStarted = new CountDownLatch(1);
+		CountDownLatch releaseLoad = new CountDownLatch(1);
+		
+		List<Future<String>> results = new ArrayList<>();
+		
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 10; i++) {
+				results.add(executor.submit(() -> cache.get(item1Id, () -> {
+					loadCount.incrementAndGet();
+					loadStarted.countDown();
+					releaseLoad.await();
+					
+					return "value";
+				})));
+			}
+			
+			Assertions.assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+			
+			// give the other callers time to join the running load
+			Thread.sleep(100);
+			releaseLoad.countDown();
+			
+			for (Future<String> result : results) {
+				Assertions.assertEquals("value", result.get(5, TimeUnit.SECONDS));
+			}
+		}
+		
+		Assertions.assertEquals(1, loadCount.get());
+		Assertions.assertEquals("value", remoteCache.get(item1Id).get());
+	}
+	
+	@Test
+	void testGet_LoadFailureIsPropagated() {
+		SingleFlightCache cache = createCache(Duration.ZERO, 0);
+		
+		IllegalStateException failure = new IllegalStateException("Database not available");
+		
+		ValueRetrievalException exception = Assertions.assertThrows(ValueRetrievalException.class, () -> cache.get(item1Id, () -> {
+			throw failure;
+		}));
+		
+		Assertions.assertSame(failure, exception.getCause());
+		Assertions.assertNull(remoteCache.get(item1Id));
+	}
+	
+	@Test
+	void testGet_LockedByOtherNode() {
+		SingleFlightCache cache = createCache(Duration.ofSeconds(5), 0);
+		
+		Mockito.when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		Mockito.when(valueOperations.setIfAbsent(Mockito.eq("cache-lock:item:" + item1Id), Mockito.anyString(), Mockito.eq(Duration.ofSeconds(5)))).thenAnswer(invocation -> {
+			// the other node finishes its load while this node is waiting
+			remoteCache.put(item1Id, "other value");
+			
+			return false;
+		});
+		
+		Assertions.assertEquals("other value", cache.get(item1Id, () -> "value"));
+		Mockito.verify(redisTemplate, Mockito.never()).execute(Mockito.any(), Mockito.anyList(), Mockito.any());
+	}
+	
+	@Test
+	void testGet_Hit() {
+		SingleFlightCache cache = createCache(Duration.ZERO, 0);
+		
+		remoteCache.put(item1Id, "value");
+		
+		Assertions.assertEquals("value", cache.get(item1Id, () -> "new value"));
+	}
+	
+	@Test
+	void testGet_EarlyRefresh() throws Exception {
+		// a huge beta makes the refresh practically certain
+		SingleFlightCache cache = createCache(Duration.ZERO, 1e12);
+		
+		Assertions.assertEquals("value", cache.get(item1Id, () -> {
+			Thread.sleep(1);
+			
+			return "value";
+		}));
+		Assertions.assertEquals("new value", cache.get(item1Id, () -> "new value"));
+		Assertions.assertEquals("new value", remoteCache.get(item1Id).get());
+		Assertions.assertEquals(1.0, meterRegistry.get(SingleFlightCache.METRIC_NAME).tag("type", "refresh").counter().count());
+	}
+	
+	private SingleFlightCache createCache(Duration lockTimeout, double earlyRefreshBeta) {
+		return new SingleFlightCache(remoteCache, Duration.ofMinutes(2), redisTemplate, lockTimeout, earlyRefreshBeta, meterRegistry);
+	}
+}
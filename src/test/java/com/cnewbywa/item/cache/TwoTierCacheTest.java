@@ -0,0 +1,180 @@
+package com.cnewbywa.item.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TwoTierCacheTest {
+
+	private ConcurrentMapCache remoteCache;
+	
+	private MeterRegistry meterRegistry;
+	
+	private List<String> invalidations;
+	
+	private TwoTierCache cache;
+	
+	private UUID item1Id = UUID.randomUUID();
+	
+	@BeforeEach
+	void setup() {
+		remoteCache = new ConcurrentMapCache("item");
+		meterRegistry = new SimpleMeterRegistry();
+		invalidations = new ArrayList<>();
+		cache = new TwoTierCache(remoteCache, Caffeine.newBuilder().maximumSize(10), (cacheName, key) -> invalidations.add(cacheName + ":" + key), meterRegistry);
+	}
+	
+	@Test
+	void testGet_RemoteHitIsCachedLocally() {
+		remoteCache.put(item1Id, "value");
+		
+		Assertions.assertEquals("value", cache.get(item1Id).get());
+		
+		remoteCache.evict(item1Id);
+		
+		Assertions.assertEquals("value", cache.get(item1Id).get());
+		Assertions.assertEquals(1.0, count("local", "hit"));
+		Assertions.assertEquals(1.0, count("local", "miss"));
+		Assertions.assertEquals(1.0, count("remote", "hit"));
+		Assertions.assertEquals(0.0, count("remote", "miss"));
+	}
+	
+	@Test
+	void testGet_Miss() {
+		Assertions.assertNull(cache.get(item1Id));
+		Assertions.assertEquals(1.0, count("local", "miss"));
+		Assertions.assertEquals(1.0, count("remote", "miss"));
+	}
+	
+	@Test
+	void testGetWithLoader_RemoteHit() {
+		remoteCache.put(item1Id, "value");
+		
+		ConcurrentMapCache remote = Mockito.spy(remoteCache);
+		TwoTierCache twoTierCache = new TwoTierCache(remote, Caffeine.newBuilder().maximumSize(10), (cacheName, key) -> invalidations.add(cacheName + ":" + key), meterRegistry);
+		
+		Assertions.assertEquals("value", twoTierCache.get(item1Id, () -> "new value"));
+		Assertions.assertEquals("value", twoTierCache.get(item1Id).get());
+		
+		Mockito.verify(remote).get(Mockito.eq(item1Id), Mockito.<Callable<String>>any());
+		Mockito.verify(remote, Mockito.never()).get(item1Id);
+		
+		Assertions.assertEquals(1.0, count("local", "hit"));
+		Assertions.assertEquals(1.0, count("local", "miss"));
+		Assertions.assertEquals(1.0, count("remote", "hit"));
+		Assertions.assertEquals(0.0, count("remote", "miss"));
+	}
+	
+	@Test
+	void testGetWithLoader_RemoteMiss() {
+		Assertions.assertEquals("value", cache.get(item1Id, () -> "value"));
+		Assertions.assertEquals("value", remoteCache.get(item1Id).get());
+		Assertions.assertEquals(1.0, count("local", "miss"));
+		Assertions.assertEquals(0.0, count("remote", "hit"));
+		Assertions.assertEquals(1.0, count("remote", "miss"));
+	}
+	
+	@Test
+	void testEvict_PublishesInvalidation() {
+		cache.put(item1Id, "value");
+		cache.evict(item1Id);
+		
+		Assertions.assertNull(cache.get(item1Id));
+		Assertions.assertNull(remoteCache.get(item1Id));
+		Assertions.assertEquals(List.of("item:" + item1Id, "item:" + item1Id), invalidations);
+	}
+	
+	@Test
+	void testEvictLocal() {
+		remoteCache.put(item1Id, "value");
+		
+		ValueWrapper value = cache.get(item1Id);
+		
+		Assertions.assertNotNull(value);
+		
+		remoteCache.put(item1Id, "new value");
+		cache.evictLocal(item1Id.toString());
+		
+		Assertions.assertEquals("new value", cache.get(item1Id).get());
+	}
+	
+	@Test
+	void testClear_PublishesInvalidation() {
+		cache.put(item1Id, "value");
+		cache.clear();
+		
+		Assertions.assertNull(cache.get(item1Id));
+		Assertions.assertEquals("item:null", invalidations.get(1));
+	}
+	
+	@Test
+	void testGetAll() {
+		UUID item2Id = UUID.randomUUID();
+		
+		cache.put(item1Id, "value");
+		remoteCache.put(item2Id, "value 2");
+		
+		Map<Object, Object> values = cache.getAll(List.of(item1Id, item2Id, UUID.randomUUID()));
+		
+		Assertions.assertEquals(Map.of(item1Id, "value", item2Id, "value 2"), values);
+		Assertions.assertEquals(1.0, count("local", "hit"));
+		Assertions.assertEquals(2.0, count("local", "miss"));
+		Assertions.assertEquals(1.0, count("remote", "hit"));
+		Assertions.assertEquals(1.0, count("remote", "miss"));
+		
+		remoteCache.evict(item2Id);
+		
+		Assertions.assertEquals("value 2", cache.get(item2Id).get());
+	}
+	
+	@Test
+	void testPutAllIfAbsent() {
+		cache.put(item1Id, "value");
+		
+		UUID item2Id = UUID.randomUUID();
+		
+		cache.putAllIfAbsent(Map.of(item1Id, "other value", item2Id, "value 2"));
+		
+		Assertions.assertEquals("value", cache.get(item1Id).get());
+		Assertions.assertEquals("value", remoteCache.get(item1Id).get());
+		Assertions.assertEquals("value 2", remoteCache.get(item2Id).get());
+		Assertions.assertEquals(List.of("item:" + item1Id), invalidations);
+	}
+	
+	@Test
+	void testGet_EarlyRefreshOfLocalHit() throws Exception {
+		// a huge beta makes the refresh practically certain
+		SingleFlightCache singleFlightCache = new SingleFlightCache(remoteCache, Duration.ofMinutes(2), null, Duration.ZERO, 1e12, meterRegistry);
+		TwoTierCache twoTierCache = new TwoTierCache(singleFlightCache, Caffeine.newBuilder().maximumSize(10), (cacheName, key) -> invalidations.add(cacheName + ":" + key), meterRegistry);
+		
+		Assertions.assertEquals("value", twoTierCache.get(item1Id, () -> {
+			Thread.sleep(1);
+			
+			return "value";
+		}));
+		Assertions.assertEquals("new value", twoTierCache.get(item1Id, () -> "new value"));
+		Assertions.assertEquals("new value", twoTierCache.get(item1Id).get());
+		Assertions.assertEquals("new value", remoteCache.get(item1Id).get());
+		Assertions.assertEquals(2.0, count("local", "hit"));
+		Assertions.assertEquals(1.0, meterRegistry.get(SingleFlightCache.METRIC_NAME).tag("type", "refresh").counter().count());
+	}
+	
+	private double count(String tier, String result) {
+		return meterRegistry.get(TwoTierCache.METRIC_NAME).tag("tier", tier).tag("result", result).counter().count();
+	}
+}
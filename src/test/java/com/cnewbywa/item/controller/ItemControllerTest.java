@@ -1,9 +1,11 @@
 package com.cnewbywa.item.controller;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -16,22 +18,39 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.cnewbywa.item.error.InvalidSearchQueryException;
 import com.cnewbywa.item.error.ItemNotFoundException;
+import com.cnewbywa.item.error.PreconditionFailedException;
+import com.cnewbywa.item.model.CountMode;
+import com.cnewbywa.item.model.ItemBatchResultDto;
 import com.cnewbywa.item.model.ItemDetailedResponseDto;
 import com.cnewbywa.item.model.ItemDto;
 import com.cnewbywa.item.model.ItemListResponseDto;
 import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.model.ItemScrollResponseDto;
+import com.cnewbywa.item.model.ItemSearchQuery;
+import com.cnewbywa.item.model.SerializedItemResponse;
+import com.cnewbywa.item.service.CacheWarmer;
+import com.cnewbywa.item.service.IdempotencyService;
+import com.cnewbywa.item.service.ItemResponseService;
 import com.cnewbywa.item.service.ItemService;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +59,15 @@ class ItemControllerTest {
 	@Mock
 	private ItemService itemService;
 	
+	@Mock
+	private IdempotencyService idempotencyService;
+	
+	@Mock
+	private ItemResponseService itemResponseService;
+	
+	@Mock
+	private CacheWarmer cacheWarmer;
+	
 	@Mock
 	private ServletUriComponentsBuilder servletUriComponentsBuilder;
 	
@@ -55,14 +83,55 @@ class ItemControllerTest {
 		
 		Mockito.when(itemService.getItem(item1Id)).thenReturn(response);
 		
-		ResponseEntity<ItemDetailedResponseDto> responseEntity = itemController.getIrem(item1Id);
+		ResponseEntity<?> responseEntity = itemController.getIrem(item1Id);
 		
 		Assertions.assertNotNull(responseEntity);
 		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
 		Assertions.assertNotNull(responseEntity.getBody());
-		assertDetailedResponseDto(response, responseEntity.getBody());
+		assertDetailedResponseDto(response, (ItemDetailedResponseDto) responseEntity.getBody());
 		
 		Mockito.verify(itemService).getItem(item1Id);
+		Mockito.verify(cacheWarmer).recordItem(item1Id);
+	}
+	
+	@Test
+	void testGetItem_Success_ETag() {
+		ItemDetailedResponseDto response = ItemDetailedResponseDto.builder().id(item1Id).name("Item 1").description("Description for item 1").version(3L).build();
+		
+		Mockito.when(itemService.getItem(item1Id)).thenReturn(response);
+		
+		ResponseEntity<?> responseEntity = itemController.getIrem(item1Id);
+		
+		Assertions.assertEquals("\"3\"", responseEntity.getHeaders().getETag());
+	}
+	
+	@Test
+	void testGetItem_Success_SerializedResponse() {
+		byte[] body = "{\"name\":\"Item 1\"}".getBytes(StandardCharsets.UTF_8);
+		
+		ReflectionTestUtils.setField(itemController, "responseCacheEnabled", true);
+		
+		Mockito.when(itemResponseService.getItem(item1Id)).thenReturn(new SerializedItemResponse(body, "\"3\""));
+		
+		ResponseEntity<?> responseEntity = itemController.getIrem(item1Id);
+		
+		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+		Assertions.assertEquals(MediaType.APPLICATION_JSON, responseEntity.getHeaders().getContentType());
+		Assertions.assertEquals("\"3\"", responseEntity.getHeaders().getETag());
+		Assertions.assertSame(body, responseEntity.getBody());
+		
+		Mockito.verifyNoInteractions(itemService);
+	}
+	
+	@Test
+	void testGetItem_Failure_NotRecorded() {
+		Mockito.when(itemService.getItem(item1Id)).thenThrow(ItemNotFoundException.class);
+		
+		Assertions.assertThrows(ItemNotFoundException.class, () -> {
+			itemController.getIrem(item1Id);
+		});
+		
+		Mockito.verifyNoInteractions(cacheWarmer);
 	}
 	
 	@Test
@@ -72,7 +141,7 @@ class ItemControllerTest {
 		Assertions.assertThrows(ItemNotFoundException.class, () -> {
 			itemService.getItem(item1Id);
 	    });
-
+		
 		
 		Mockito.verify(itemService).getItem(item1Id);
 	}
@@ -84,11 +153,12 @@ class ItemControllerTest {
 		ItemResponseDto response = ItemResponseDto.builder().id(item1Id).name("Item 1").createTime(Instant.now()).build();
 		ItemResponseDto response2 = ItemResponseDto.builder().id(item2Id).name("Item 2").createTime(Instant.now()).build();
 		
-		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(Arrays.asList(response, response2)).amount(2).totalAmount(2).build();
+		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(Arrays.asList(response, response2)).amount(2).totalAmount(2L).build();
 		
-		Mockito.when(itemService.getItems(pageable)).thenReturn(listResponse);
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.getItems(pageable, CountMode.EXACT)).thenReturn(listResponse);
 		
-		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItems(pageable);
+		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItems(pageable, CountMode.EXACT, createWebRequest(null));
 		
 		Assertions.assertNotNull(responseEntity);
 		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
@@ -98,18 +168,32 @@ class ItemControllerTest {
 		assertResponseDto(response, responseEntity.getBody().getItems().get(0));
 		assertResponseDto(response2, responseEntity.getBody().getItems().get(1));
 		
-		Mockito.verify(itemService).getItems(pageable);
+		Mockito.verify(itemService).getItems(pageable, CountMode.EXACT);
+		Mockito.verify(cacheWarmer).recordList(pageable, CountMode.EXACT);
+	}
+	
+	@Test
+	void testGetItems_NotModified() {
+		Mockito.when(itemService.getListVersion()).thenReturn("5");
+		
+		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItems(PageRequest.of(0, 2), CountMode.EXACT, createWebRequest("W/\"5\""));
+		
+		Assertions.assertEquals(HttpStatus.NOT_MODIFIED, responseEntity.getStatusCode());
+		Assertions.assertNull(responseEntity.getBody());
+		
+		Mockito.verify(itemService, Mockito.never()).getItems(Mockito.any(Pageable.class), Mockito.any(CountMode.class));
 	}
 	
 	@Test
 	void testGetItems_Success_NoResult() {
 		Pageable pageable = PageRequest.of(0, 2);
 		
-		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(new ArrayList<>()).amount(0).totalAmount(0).build();
+		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(new ArrayList<>()).amount(0).totalAmount(0L).build();
 		
-		Mockito.when(itemService.getItems(pageable)).thenReturn(listResponse);
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.getItems(pageable, CountMode.EXACT)).thenReturn(listResponse);
 		
-		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItems(pageable);
+		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItems(pageable, CountMode.EXACT, createWebRequest(null));
 		
 		Assertions.assertNotNull(responseEntity);
 		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
@@ -118,7 +202,30 @@ class ItemControllerTest {
 		Assertions.assertEquals(0L, responseEntity.getBody().getTotalAmount());
 		Assertions.assertTrue(responseEntity.getBody().getItems().isEmpty());
 		
-		Mockito.verify(itemService).getItems(pageable);
+		Mockito.verify(itemService).getItems(pageable, CountMode.EXACT);
+	}
+	
+	@Test
+	void testGetItems_Success_NoCount() {
+		Pageable pageable = PageRequest.of(0, 2);
+		
+		ItemResponseDto response = ItemResponseDto.builder().id(item1Id).name("Item 1").createTime(Instant.now()).build();
+		
+		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(Arrays.asList(response)).amount(1).hasNext(true).build();
+		
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.getItems(pageable, CountMode.NONE)).thenReturn(listResponse);
+		
+		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItems(pageable, CountMode.NONE, createWebRequest(null));
+		
+		Assertions.assertNotNull(responseEntity);
+		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+		Assertions.assertNotNull(responseEntity.getBody());
+		Assertions.assertEquals(1L, responseEntity.getBody().getAmount());
+		Assertions.assertNull(responseEntity.getBody().getTotalAmount());
+		Assertions.assertTrue(responseEntity.getBody().isHasNext());
+		
+		Mockito.verify(itemService).getItems(pageable, CountMode.NONE);
 	}
 	
 	@Test
@@ -128,11 +235,12 @@ class ItemControllerTest {
 		ItemResponseDto response = ItemResponseDto.builder().id(item1Id).name("Item 1").createTime(Instant.now()).createdBy("test-user-id").build();
 		ItemResponseDto response2 = ItemResponseDto.builder().id(item2Id).name("Item 2").createTime(Instant.now()).createdBy("test-user-id").build();
 		
-		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(Arrays.asList(response, response2)).amount(2).totalAmount(2).build();
+		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(Arrays.asList(response, response2)).amount(2).totalAmount(2L).build();
 		
-		Mockito.when(itemService.getItemsByUser("test-user-id", pageable)).thenReturn(listResponse);
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.getItemsByUser("test-user-id", pageable, CountMode.EXACT)).thenReturn(listResponse);
 		
-		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItemsByUser("test-user-id", pageable);
+		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItemsByUser("test-user-id", pageable, CountMode.EXACT, createWebRequest(null));
 		
 		Assertions.assertNotNull(responseEntity);
 		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
@@ -142,18 +250,19 @@ class ItemControllerTest {
 		assertResponseDto(response, responseEntity.getBody().getItems().get(0));
 		assertResponseDto(response2, responseEntity.getBody().getItems().get(1));
 		
-		Mockito.verify(itemService).getItemsByUser("test-user-id", pageable);
+		Mockito.verify(itemService).getItemsByUser("test-user-id", pageable, CountMode.EXACT);
 	}
 	
 	@Test
 	void testGetItemsByUser_Success_NoResult() {
 		Pageable pageable = PageRequest.of(0, 2);
 		
-		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(new ArrayList<>()).amount(0).totalAmount(0).build();
+		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(new ArrayList<>()).amount(0).totalAmount(0L).build();
 		
-		Mockito.when(itemService.getItemsByUser("test-user-id", pageable)).thenReturn(listResponse);
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.getItemsByUser("test-user-id", pageable, CountMode.EXACT)).thenReturn(listResponse);
 		
-		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItemsByUser("test-user-id", pageable);
+		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItemsByUser("test-user-id", pageable, CountMode.EXACT, createWebRequest(null));
 		
 		Assertions.assertNotNull(responseEntity);
 		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
@@ -162,7 +271,90 @@ class ItemControllerTest {
 		Assertions.assertEquals(0L, responseEntity.getBody().getTotalAmount());
 		Assertions.assertTrue(responseEntity.getBody().getItems().isEmpty());
 		
-		Mockito.verify(itemService).getItemsByUser("test-user-id", pageable);
+		Mockito.verify(itemService).getItemsByUser("test-user-id", pageable, CountMode.EXACT);
+		Mockito.verify(cacheWarmer).recordUserList("test-user-id", pageable, CountMode.EXACT);
+	}
+	
+	@Test
+	void testGetItemsByUser_Failure() {
+		Pageable pageable = PageRequest.of(0, 2);
+		
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.getItemsByUser("test-user-id", pageable, CountMode.EXACT)).thenThrow(new IllegalStateException("Database not available"));
+		
+		WebRequest request = createWebRequest(null);
+		
+		Assertions.assertThrows(IllegalStateException.class, () -> itemController.getItemsByUser("test-user-id", pageable, CountMode.EXACT, request));
+		
+		Mockito.verifyNoInteractions(cacheWarmer);
+	}
+	
+	@Test
+	void testScrollItems_Success() {
+		ItemResponseDto response = ItemResponseDto.builder().id(item1Id).name("Item 1").createTime(Instant.now()).build();
+		
+		ItemScrollResponseDto scrollResponse = ItemScrollResponseDto.builder().items(Arrays.asList(response)).amount(1).nextCursor("cursor2").build();
+		
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.scrollItems("cursor1", 1)).thenReturn(scrollResponse);
+		
+		ResponseEntity<ItemScrollResponseDto> responseEntity = itemController.scrollItems("cursor1", 1, createWebRequest(null));
+		
+		Assertions.assertNotNull(responseEntity);
+		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+		Assertions.assertNotNull(responseEntity.getBody());
+		Assertions.assertEquals(1L, responseEntity.getBody().getAmount());
+		Assertions.assertEquals("cursor2", responseEntity.getBody().getNextCursor());
+		assertResponseDto(response, responseEntity.getBody().getItems().get(0));
+		
+		Mockito.verify(itemService).scrollItems("cursor1", 1);
+	}
+	
+	@Test
+	void testSearchItems_Success() {
+		ItemResponseDto response = ItemResponseDto.builder().id(item1Id).name("Item 1").createTime(Instant.now()).build();
+		
+		ItemScrollResponseDto searchResponse = ItemScrollResponseDto.builder().items(Arrays.asList(response)).amount(1).build();
+		
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.searchItems(ItemSearchQuery.of("item 1"), null, 20)).thenReturn(searchResponse);
+		
+		ResponseEntity<ItemScrollResponseDto> responseEntity = itemController.searchItems("  Item   1 ", null, 20, createWebRequest(null));
+		
+		Assertions.assertNotNull(responseEntity);
+		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+		Assertions.assertNotNull(responseEntity.getBody());
+		Assertions.assertEquals(1L, responseEntity.getBody().getAmount());
+		assertResponseDto(response, responseEntity.getBody().getItems().get(0));
+		
+		Mockito.verify(itemService).searchItems(ItemSearchQuery.of("item 1"), null, 20);
+	}
+	
+	@Test
+	void testSearchItems_InvalidQuery() {
+		Assertions.assertThrows(InvalidSearchQueryException.class, () -> {
+			itemController.searchItems(" ", null, 20, createWebRequest(null));
+		});
+		
+		Mockito.verifyNoInteractions(itemService);
+	}
+	
+	@Test
+	void testScrollItemsByUser_Success() {
+		ItemScrollResponseDto scrollResponse = ItemScrollResponseDto.builder().items(new ArrayList<>()).amount(0).build();
+		
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.scrollItemsByUser("test-user-id", null, 20)).thenReturn(scrollResponse);
+		
+		ResponseEntity<ItemScrollResponseDto> responseEntity = itemController.scrollItemsByUser("test-user-id", null, 20, createWebRequest(null));
+		
+		Assertions.assertNotNull(responseEntity);
+		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+		Assertions.assertNotNull(responseEntity.getBody());
+		Assertions.assertTrue(responseEntity.getBody().getItems().isEmpty());
+		Assertions.assertNull(responseEntity.getBody().getNextCursor());
+		
+		Mockito.verify(itemService).scrollItemsByUser("test-user-id", null, 20);
 	}
 	
 	@Test
@@ -172,11 +364,12 @@ class ItemControllerTest {
 		ItemResponseDto response = ItemResponseDto.builder().id(item1Id).name("Item 1").createTime(Instant.now()).createdBy("test-user-id").build();
 		ItemResponseDto response2 = ItemResponseDto.builder().id(item2Id).name("Item 2").createTime(Instant.now()).createdBy("test-user-id").build();
 		
-		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(Arrays.asList(response, response2)).amount(2).totalAmount(2).build();
+		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(Arrays.asList(response, response2)).amount(2).totalAmount(2L).build();
 		
-		Mockito.when(itemService.getItemsByUser("test-user-id", pageable)).thenReturn(listResponse);
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.getItemsByUser("test-user-id", pageable, CountMode.EXACT)).thenReturn(listResponse);
 		
-		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItemsByLoggedInUser(createAuthentication("test-user-id"), pageable);
+		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItemsByLoggedInUser(createAuthentication("test-user-id"), pageable, CountMode.EXACT, createWebRequest(null));
 		
 		Assertions.assertNotNull(responseEntity);
 		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
@@ -186,18 +379,19 @@ class ItemControllerTest {
 		assertResponseDto(response, responseEntity.getBody().getItems().get(0));
 		assertResponseDto(response2, responseEntity.getBody().getItems().get(1));
 		
-		Mockito.verify(itemService).getItemsByUser("test-user-id", pageable);
+		Mockito.verify(itemService).getItemsByUser("test-user-id", pageable, CountMode.EXACT);
 	}
 	
 	@Test
 	void testGetItemsByLoggedInUser_Success_NoResult() {
 		Pageable pageable = PageRequest.of(0, 2);
 		
-		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(new ArrayList<>()).amount(0).totalAmount(0).build();
+		ItemListResponseDto listResponse = ItemListResponseDto.builder().items(new ArrayList<>()).amount(0).totalAmount(0L).build();
 		
-		Mockito.when(itemService.getItemsByUser("test-user-id", pageable)).thenReturn(listResponse);
+		Mockito.when(itemService.getListVersion()).thenReturn("1");
+		Mockito.when(itemService.getItemsByUser("test-user-id", pageable, CountMode.EXACT)).thenReturn(listResponse);
 		
-		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItemsByLoggedInUser(createAuthentication("test-user-id"), pageable);
+		ResponseEntity<ItemListResponseDto> responseEntity = itemController.getItemsByLoggedInUser(createAuthentication("test-user-id"), pageable, CountMode.EXACT, createWebRequest(null));
 		
 		Assertions.assertNotNull(responseEntity);
 		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
@@ -206,20 +400,20 @@ class ItemControllerTest {
 		Assertions.assertEquals(0L, responseEntity.getBody().getTotalAmount());
 		Assertions.assertTrue(responseEntity.getBody().getItems().isEmpty());
 		
-		Mockito.verify(itemService).getItemsByUser("test-user-id", pageable);
+		Mockito.verify(itemService).getItemsByUser("test-user-id", pageable, CountMode.EXACT);
 	}
 	
 	@Test
 	void testAddItem() {
 		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
-        
+		
 		ItemDetailedResponseDto response = ItemDetailedResponseDto.builder().id(item1Id).name("Item 2").description("Description for item 2").build();
 		
 		ItemDto input = new ItemDto("Item 2", "Description for item 2");
 		
 		Mockito.when(itemService.addItem(input, "test-user-id")).thenReturn(response);
 		
-		ResponseEntity<ItemDetailedResponseDto> responseEntity = itemController.addItem(createAuthentication("test-user-id"), input);
+		ResponseEntity<ItemDetailedResponseDto> responseEntity = itemController.addItem(createAuthentication("test-user-id"), input, null);
 		
 		Assertions.assertNotNull(responseEntity);
 		Assertions.assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
@@ -232,7 +426,7 @@ class ItemControllerTest {
 	@Test
 	void testAddItem_NoLoggedInUser() {
 		Assertions.assertThrows(UsernameNotFoundException.class, () -> {
-			itemController.addItem(null, null);
+			itemController.addItem(null, null, null);
 	    });
 		
 		Mockito.verify(itemService, Mockito.never()).addItem(Mockito.any(ItemDto.class), Mockito.anyString());
@@ -241,12 +435,29 @@ class ItemControllerTest {
 	@Test
 	void testAddItem_NoLoggedInUser2() {
 		Assertions.assertThrows(UsernameNotFoundException.class, () -> {
-			itemController.addItem(createAuthentication(null), null);
+			itemController.addItem(createAuthentication(null), null, null);
 	    });
 		
 		Mockito.verify(itemService, Mockito.never()).addItem(Mockito.any(ItemDto.class), Mockito.anyString());
 	}
 	
+	@Test
+	void testAddItem_IdempotencyKey() {
+		ItemDetailedResponseDto response = ItemDetailedResponseDto.builder().id(item1Id).name("Item 2").description("Description for item 2").build();
+		
+		ItemDto input = new ItemDto("Item 2", "Description for item 2");
+		
+		Mockito.when(idempotencyService.execute(Mockito.eq("key-1"), Mockito.eq("test-user-id"), Mockito.eq("POST"), Mockito.eq(input), Mockito.eq(ItemDetailedResponseDto.class), Mockito.any()))
+				.thenReturn(new ResponseEntity<>(response, HttpStatus.CREATED));
+		
+		ResponseEntity<ItemDetailedResponseDto> responseEntity = itemController.addItem(createAuthentication("test-user-id"), input, "key-1");
+		
+		Assertions.assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
+		assertDetailedResponseDto(response, responseEntity.getBody());
+		
+		Mockito.verify(itemService, Mockito.never()).addItem(Mockito.any(ItemDto.class), Mockito.anyString());
+	}
+	
 	@Test
 	void testUpdateItem() {
 		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
@@ -255,16 +466,43 @@ class ItemControllerTest {
 		
 		ItemDto input = new ItemDto("Item 2", "New description for item 2");
 		
-		Mockito.when(itemService.updateItem(item2Id, input, "test-user-id")).thenReturn(response);
+		Mockito.when(itemService.updateItem(item2Id, input, "test-user-id", null)).thenReturn(response);
 		
-		ResponseEntity<ItemDetailedResponseDto> responseEntity = itemController.updateItem(createAuthentication("test-user-id"), item2Id, input);
+		ResponseEntity<ItemDetailedResponseDto> responseEntity = itemController.updateItem(createAuthentication("test-user-id"), item2Id, input, null, null);
 		
 		Assertions.assertNotNull(responseEntity);
 		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
 		Assertions.assertNotNull(responseEntity.getBody());
 		assertDetailedResponseDto(response, responseEntity.getBody());
 		
-		Mockito.verify(itemService).updateItem(item2Id, input, "test-user-id");
+		Mockito.verify(itemService).updateItem(item2Id, input, "test-user-id", null);
+	}
+	
+	@Test
+	void testUpdateItem_IfMatch() {
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		
+		ItemDetailedResponseDto response = ItemDetailedResponseDto.builder().id(item2Id).name("Item 2").description("New description for item 2").version(4L).build();
+		
+		ItemDto input = new ItemDto("Item 2", "New description for item 2");
+		
+		Mockito.when(itemService.updateItem(item2Id, input, "test-user-id", 3L)).thenReturn(response);
+		
+		ResponseEntity<ItemDetailedResponseDto> responseEntity = itemController.updateItem(createAuthentication("test-user-id"), item2Id, input, "\"3\"", null);
+		
+		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+		Assertions.assertEquals("\"4\"", responseEntity.getHeaders().getETag());
+	}
+	
+	@Test
+	void testUpdateItem_IfMatch_WeakETag() {
+		ItemDto input = new ItemDto("Item 2", "New description for item 2");
+		
+		Assertions.assertThrows(PreconditionFailedException.class, () -> {
+			itemController.updateItem(createAuthentication("test-user-id"), item2Id, input, "W/\"3\"", null);
+		});
+		
+		Mockito.verify(itemService, Mockito.never()).updateItem(Mockito.any(UUID.class), Mockito.any(ItemDto.class), Mockito.anyString(), Mockito.any());
 	}
 	
 	@Test
@@ -272,10 +510,10 @@ class ItemControllerTest {
 		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
 		
 		Assertions.assertThrows(UsernameNotFoundException.class, () -> {
-			itemController.updateItem(null, item1Id, null);
+			itemController.updateItem(null, item1Id, null, null, null);
 	    });
 		
-		Mockito.verify(itemService, Mockito.never()).updateItem(Mockito.any(UUID.class), Mockito.any(ItemDto.class), Mockito.anyString());
+		Mockito.verify(itemService, Mockito.never()).updateItem(Mockito.any(UUID.class), Mockito.any(ItemDto.class), Mockito.anyString(), Mockito.any());
 	}
 	
 	@Test
@@ -283,17 +521,17 @@ class ItemControllerTest {
 		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
 		
 		Assertions.assertThrows(UsernameNotFoundException.class, () -> {
-			itemController.updateItem(createAuthentication(null), item1Id, null);
+			itemController.updateItem(createAuthentication(null), item1Id, null, null, null);
 	    });
 		
-		Mockito.verify(itemService, Mockito.never()).updateItem(Mockito.any(UUID.class), Mockito.any(ItemDto.class), Mockito.anyString());
+		Mockito.verify(itemService, Mockito.never()).updateItem(Mockito.any(UUID.class), Mockito.any(ItemDto.class), Mockito.anyString(), Mockito.any());
 	}
 	
 	@Test
 	void testDeleteItem() {
 		Mockito.doNothing().when(itemService).deleteItem(item2Id, "test-user-id");
 		
-		itemController.deleteItem(createAuthentication("test-user-id"), item2Id);
+		itemController.deleteItem(createAuthentication("test-user-id"), item2Id, null);
 		
 		Mockito.verify(itemService).deleteItem(item2Id, "test-user-id");
 	}
@@ -301,7 +539,7 @@ class ItemControllerTest {
 	@Test
 	void testDeleteItem_NoLoggedInUser() {
 		Assertions.assertThrows(UsernameNotFoundException.class, () -> {
-			itemController.deleteItem(null, item1Id);
+			itemController.deleteItem(null, item1Id, null);
 	    });
 		
 		Mockito.verify(itemService, Mockito.never()).deleteItem(Mockito.any(UUID.class), Mockito.anyString());
@@ -310,12 +548,88 @@ class ItemControllerTest {
 	@Test
 	void testDeleteItem_NoLoggedInUser2() {
 		Assertions.assertThrows(UsernameNotFoundException.class, () -> {
-			itemController.deleteItem(createAuthentication(null), item1Id);
+			itemController.deleteItem(createAuthentication(null), item1Id, null);
 	    });
 		
 		Mockito.verify(itemService, Mockito.never()).deleteItem(Mockito.any(UUID.class), Mockito.anyString());
 	}
 	
+	@Test
+	void testAddItems() {
+		ItemDetailedResponseDto response = ItemDetailedResponseDto.builder().id(item1Id).name("Item 1").description("Description for item 1").build();
+		ItemDetailedResponseDto response2 = ItemDetailedResponseDto.builder().id(item2Id).name("Item 2").description("Description for item 2").build();
+		
+		List<ItemDto> input = Arrays.asList(new ItemDto("Item 1", "Description for item 1"), new ItemDto("Item 2", "Description for item 2"));
+		
+		Mockito.when(itemService.addItems(input, "test-user-id")).thenReturn(Arrays.asList(response, response2));
+		
+		ResponseEntity<List<ItemDetailedResponseDto>> responseEntity = itemController.addItems(createAuthentication("test-user-id"), input);
+		
+		Assertions.assertNotNull(responseEntity);
+		Assertions.assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
+		Assertions.assertNotNull(responseEntity.getBody());
+		assertDetailedResponseDto(response, responseEntity.getBody().get(0));
+		assertDetailedResponseDto(response2, responseEntity.getBody().get(1));
+		
+		Mockito.verify(itemService).addItems(input, "test-user-id");
+	}
+	
+	@Test
+	void testAddItems_NoLoggedInUser() {
+		Assertions.assertThrows(UsernameNotFoundException.class, () -> {
+			itemController.addItems(null, new ArrayList<>());
+	    });
+		
+		Mockito.verify(itemService, Mockito.never()).addItems(Mockito.anyList(), Mockito.anyString());
+	}
+	
+	@Test
+	void testDeleteItems() {
+		List<UUID> ids = Arrays.asList(item1Id, item2Id);
+		
+		itemController.deleteItems(createAuthentication("test-user-id"), ids);
+		
+		Mockito.verify(itemService).deleteItems(ids, "test-user-id");
+	}
+	
+	@Test
+	void testGetItemsByIds() {
+		List<UUID> ids = Arrays.asList(item1Id, item2Id);
+		ItemDetailedResponseDto response = ItemDetailedResponseDto.builder().id(item1Id).name("Item 1").description("Description 1").build();
+		
+		Mockito.when(itemService.getItemsByIds(ids)).thenReturn(Arrays.asList(
+				ItemBatchResultDto.builder().id(item1Id).found(true).item(response).build(),
+				ItemBatchResultDto.builder().id(item2Id).found(false).build()));
+		
+		ResponseEntity<List<ItemBatchResultDto>> responseEntity = itemController.getItemsByIds(ids);
+		
+		Assertions.assertNotNull(responseEntity);
+		Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+		Assertions.assertEquals(2, responseEntity.getBody().size());
+		Assertions.assertTrue(responseEntity.getBody().get(0).isFound());
+		assertDetailedResponseDto(response, responseEntity.getBody().get(0).getItem());
+		Assertions.assertFalse(responseEntity.getBody().get(1).isFound());
+		
+		Mockito.verify(itemService).getItemsByIds(ids);
+	}
+	
+	@Test
+	void testExportItems_Gzip() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		ReflectionTestUtils.setField(itemController, "exportTimeout", 1800000L);
+		
+		WebAsyncTask<Void> task = itemController.exportItems("gzip, deflate", response);
+		
+		Assertions.assertEquals(1800000L, task.getTimeout());
+		Assertions.assertEquals(MediaType.APPLICATION_NDJSON_VALUE, response.getContentType());
+		Assertions.assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		
+		task.getCallable().call();
+		
+		Mockito.verify(itemService).exportItems(response.getOutputStream(), true);
+	}
+	
 	private void assertDetailedResponseDto(ItemDetailedResponseDto expectedResponse, ItemDetailedResponseDto actualResponse) {
 		Assertions.assertEquals(expectedResponse.getId(), actualResponse.getId());
 		Assertions.assertEquals(expectedResponse.getName(), actualResponse.getName());
@@ -328,6 +642,16 @@ class ItemControllerTest {
 		Assertions.assertNotNull(actualResponse.getCreateTime());
 	}
 	
+	private WebRequest createWebRequest(String ifNoneMatch) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		
+		if (ifNoneMatch != null) {
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		
+		return new ServletWebRequest(request, new MockHttpServletResponse());
+	}
+	
 	private Authentication createAuthentication(String user) {
 		Map<String, Object> headers = new HashMap<>();
 		headers.put("alg", "HS256");
@@ -0,0 +1,159 @@
+package com.cnewbywa.item.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cnewbywa.item.error.ConcurrencyLimitExceededException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ConcurrencyLimitingDataSourceTest {
+
+	@Mock
+	private DataSource target;
+	
+	@Mock
+	private Connection targetConnection;
+	
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	
+	@Test
+	void testGetConnection_Success() throws SQLException {
+		ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(target, "primary", 1, 10, 2.0, 100, 1, meterRegistry);
+		
+		Mockito.when(target.getConnection()).thenReturn(targetConnection);
+		
+		Connection connection = dataSource.getConnection();
+		
+		Assertions.assertSame(targetConnection, ((ConnectionProxy) connection).getTargetConnection());
+		Assertions.assertEquals(1.0, meterRegistry.get(ConcurrencyLimitingDataSource.IN_FLIGHT_METRIC_NAME).gauge().value());
+		
+		connection.close();
+		connection.close();
+		
+		Mockito.verify(targetConnection).close();
+		
+		Assertions.assertEquals(0, dataSource.getInFlight());
+		Assertions.assertTrue(connection.isClosed());
+	}
+	
+	@Test
+	void testGetConnection_Failure_LimitReached() throws SQLException {
+		ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(target, "primary", 1, 1, 2.0, 10, 2, meterRegistry);
+		
+		Mockito.when(target.getConnection()).thenReturn(targetConnection);
+		
+		dataSource.getConnection();
+		
+		ConcurrencyLimitExceededException exception = Assertions.assertThrows(ConcurrencyLimitExceededException.class, () -> {
+			dataSource.getConnection();
+		});
+		
+		Assertions.assertEquals(2, exception.getRetryAfter());
+		Assertions.assertEquals(1.0, meterRegistry.get(ConcurrencyLimitingDataSource.REJECTED_METRIC_NAME).counter().count());
+		
+		Mockito.verify(target).getConnection();
+	}
+	
+	@Test
+	void testGetConnection_Failure_TargetFails() throws SQLException {
+		ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(target, "primary", 1, 10, 2.0, 100, 1, meterRegistry);
+		
+		Mockito.when(target.getConnection()).thenThrow(new SQLException("Connection refused"));
+		
+		Assertions.assertThrows(SQLException.class, () -> {
+			dataSource.getConnection();
+		});
+		
+		Assertions.assertEquals(0, dataSource.getInFlight());
+	}
+	
+	@Test
+	void testGetConnection_Failure_LimitReachedKeepsLimit() throws SQLException {
+		ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(target, "primary", 1, 2, 2.0, 10, 1, meterRegistry);
+		
+		Mockito.when(target.getConnection()).thenReturn(targetConnection);
+		
+		dataSource.getConnection();
+		dataSource.getConnection();
+		
+		Assertions.assertThrows(ConcurrencyLimitExceededException.class, () -> {
+			dataSource.getConnection();
+		});
+		
+		Assertions.assertEquals(2, dataSource.getLimit());
+	}
+	
+	@Test
+	void testClose_SlowConnections() throws SQLException, InterruptedException {
+		ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(target, "primary", 1, 10, 2.0, 100, 1, meterRegistry);
+		
+		Mockito.when(target.getConnection()).thenReturn(targetConnection);
+		
+		// sets the baseline
+		dataSource.getConnection().close();
+		
+		// the recent hold time goes over the tolerated time after a few slow connections
+		for (int i = 0; i < 8; i++) {
+			Connection connection = dataSource.getConnection();
+			
+			Thread.sleep(20);
+			
+			connection.close();
+		}
+		
+		Assertions.assertEquals(9, dataSource.getLimit());
+		Assertions.assertEquals(9.0, meterRegistry.get(ConcurrencyLimitingDataSource.LIMIT_METRIC_NAME).tag("target", "primary").gauge().value());
+	}
+	
+	@Test
+	void testClose_LongHeldConnection() throws SQLException, InterruptedException {
+		ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(target, "primary", 1, 10, 2.0, 100, 1, meterRegistry);
+		
+		Mockito.when(target.getConnection()).thenReturn(targetConnection);
+		
+		dataSource.getConnection().close();
+		
+		Connection connection = dataSource.getConnection();
+		
+		Thread.sleep(50);
+		
+		connection.close();
+		
+		Assertions.assertEquals(10, dataSource.getLimit());
+	}
+	
+	@Test
+	void testGetConnection_ExemptTransaction() throws SQLException {
+		ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(target, "primary", 1, 1, 2.0, 10, 1, meterRegistry);
+		
+		Mockito.when(target.getConnection()).thenReturn(targetConnection);
+		
+		TransactionSynchronizationManager.initSynchronization();
+		
+		try {
+			ConcurrencyLimitingDataSource.exemptCurrentTransaction();
+			
+			Assertions.assertSame(targetConnection, dataSource.getConnection());
+			Assertions.assertSame(targetConnection, dataSource.getConnection());
+			Assertions.assertEquals(0, dataSource.getInFlight());
+		} finally {
+			TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+}
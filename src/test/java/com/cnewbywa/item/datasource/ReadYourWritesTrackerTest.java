@@ -0,0 +1,103 @@
+package com.cnewbywa.item.datasource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+class ReadYourWritesTrackerTest {
+
+	@InjectMocks
+	private ReadYourWritesTracker readYourWritesTracker;
+	
+	@Mock
+	private StringRedisTemplate redisTemplate;
+	
+	@BeforeEach
+	void setup() {
+		ReflectionTestUtils.setField(readYourWritesTracker, "replicaUrls", List.of("jdbc:postgresql://replica:5432/item"));
+		ReflectionTestUtils.setField(readYourWritesTracker, "window", 5000L);
+		ReflectionTestUtils.setField(readYourWritesTracker, "channel", "item-read-your-writes");
+		readYourWritesTracker.init();
+		
+		// no writes since the startup
+		ReflectionTestUtils.setField(readYourWritesTracker, "lastWrite", System.nanoTime() - 10_000_000_000L);
+		
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user1", null));
+	}
+	
+	@AfterEach
+	void destroy() {
+		SecurityContextHolder.clearContext();
+		
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		
+		TransactionSynchronizationManager.unbindResourceIfPossible(ReadYourWritesTracker.class.getName() + ".CACHED_READ");
+	}
+	
+	@Test
+	void testRequiresPrimary_OwnWrite() {
+		readYourWritesTracker.recordWrite("user1");
+		
+		Assertions.assertTrue(readYourWritesTracker.requiresPrimary());
+		
+		Mockito.verify(redisTemplate).convertAndSend("item-read-your-writes", "user1");
+	}
+	
+	@Test
+	void testRequiresPrimary_WriteOnOtherNode() {
+		readYourWritesTracker.onMessage(new DefaultMessage("item-read-your-writes".getBytes(StandardCharsets.UTF_8), "user1".getBytes(StandardCharsets.UTF_8)), null);
+		
+		Assertions.assertTrue(readYourWritesTracker.requiresPrimary());
+		
+		Mockito.verifyNoInteractions(redisTemplate);
+	}
+	
+	@Test
+	void testRequiresPrimary_WriteOfOtherUser() {
+		readYourWritesTracker.onMessage(new DefaultMessage("item-read-your-writes".getBytes(StandardCharsets.UTF_8), "user2".getBytes(StandardCharsets.UTF_8)), null);
+		
+		Assertions.assertFalse(readYourWritesTracker.requiresPrimary());
+	}
+	
+	@Test
+	void testRequiresPrimary_CachedReadAfterWriteOfOtherUser() {
+		TransactionSynchronizationManager.initSynchronization();
+		
+		readYourWritesTracker.markCachedRead();
+		
+		Assertions.assertFalse(readYourWritesTracker.requiresPrimary());
+		
+		readYourWritesTracker.onMessage(new DefaultMessage("item-read-your-writes".getBytes(StandardCharsets.UTF_8), "user2".getBytes(StandardCharsets.UTF_8)), null);
+		
+		Assertions.assertTrue(readYourWritesTracker.requiresPrimary());
+	}
+	
+	@Test
+	void testRecordWrite_NoReplicas() {
+		ReflectionTestUtils.setField(readYourWritesTracker, "replicaUrls", List.of());
+		
+		readYourWritesTracker.recordWrite("user1");
+		
+		Assertions.assertFalse(readYourWritesTracker.requiresPrimary());
+		
+		Mockito.verifyNoInteractions(redisTemplate);
+	}
+}
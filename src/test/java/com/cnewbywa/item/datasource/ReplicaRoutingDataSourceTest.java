@@ -0,0 +1,135 @@
+package com.cnewbywa.item.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+	@Mock
+	private DataSource primary;
+	
+	@Mock
+	private DataSource replica;
+	
+	@Mock
+	private Connection primaryConnection;
+	
+	@Mock
+	private Connection replicaConnection;
+	
+	@Mock
+	private Statement statement;
+	
+	@Mock
+	private ResultSet resultSet;
+	
+	@Mock
+	private ReadYourWritesTracker readYourWritesTracker;
+	
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	
+	private ReplicaRoutingDataSource dataSource;
+	
+	@BeforeEach
+	void setup() {
+		dataSource = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica), 1000, readYourWritesTracker, meterRegistry);
+	}
+	
+	@AfterEach
+	void destroy() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+	}
+	
+	@Test
+	void testGetConnection_ReadOnly() throws SQLException {
+		mockLag(10);
+		
+		dataSource.checkReplicas();
+		
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		
+		Assertions.assertSame(replicaConnection, dataSource.getConnection());
+		Assertions.assertEquals(1.0, meterRegistry.get(ReplicaRoutingDataSource.HEALTHY_REPLICAS_METRIC_NAME).gauge().value());
+	}
+	
+	@Test
+	void testGetConnection_ReadWrite() throws SQLException {
+		mockLag(10);
+		Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+		
+		dataSource.checkReplicas();
+		
+		Assertions.assertSame(primaryConnection, dataSource.getConnection());
+	}
+	
+	@Test
+	void testGetConnection_ReadYourWrites() throws SQLException {
+		mockLag(10);
+		Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+		Mockito.when(readYourWritesTracker.requiresPrimary()).thenReturn(true);
+		
+		dataSource.checkReplicas();
+		
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		
+		Assertions.assertSame(primaryConnection, dataSource.getConnection());
+	}
+	
+	@Test
+	void testGetConnection_ReplicaLagging() throws SQLException {
+		mockLag(5000);
+		Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+		
+		dataSource.checkReplicas();
+		
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		
+		Assertions.assertSame(primaryConnection, dataSource.getConnection());
+		Assertions.assertEquals(0.0, meterRegistry.get(ReplicaRoutingDataSource.HEALTHY_REPLICAS_METRIC_NAME).gauge().value());
+	}
+	
+	@Test
+	void testGetConnection_ReplicaFails() throws SQLException {
+		mockLag(10);
+		Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+		
+		dataSource.checkReplicas();
+		
+		Mockito.when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+		
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		
+		Assertions.assertSame(primaryConnection, dataSource.getConnection());
+		Assertions.assertSame(primaryConnection, dataSource.getConnection());
+		
+		Mockito.verify(replica, Mockito.times(2)).getConnection();
+		Assertions.assertEquals(1.0, meterRegistry.get(ReplicaRoutingDataSource.ROUTING_METRIC_NAME).tag("target", "failover").counter().count());
+	}
+	
+	private void mockLag(double lag) throws SQLException {
+		Mockito.when(replica.getConnection()).thenReturn(replicaConnection);
+		Mockito.when(replicaConnection.createStatement()).thenReturn(statement);
+		Mockito.when(statement.executeQuery(Mockito.anyString())).thenReturn(resultSet);
+		Mockito.when(resultSet.next()).thenReturn(true);
+		Mockito.when(resultSet.getDouble(1)).thenReturn(lag);
+	}
+}
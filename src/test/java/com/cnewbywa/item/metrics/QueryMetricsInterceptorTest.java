@@ -0,0 +1,79 @@
+package com.cnewbywa.item.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class QueryMetricsInterceptorTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	
+	private QueryMetricsInterceptor interceptor;
+	
+	@BeforeEach
+	void setup() {
+		meterRegistry = new SimpleMeterRegistry();
+		interceptor = new QueryMetricsInterceptor(meterRegistry);
+	}
+	
+	@Test
+	void testRecordQueries() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items/id/1");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/id/{id}");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		interceptor.preHandle(request, response, null);
+		
+		RequestQueryStats.current().statementExecuted(1000);
+		RequestQueryStats.current().statementExecuted(2000);
+		RequestQueryStats.current().entityLoaded();
+		
+		interceptor.afterCompletion(request, response, null, null);
+		
+		DistributionSummary statements = meterRegistry.find(QueryMetricsInterceptor.STATEMENTS_METRIC).tag("method", "GET").tag("uri", "/id/{id}").summary();
+		DistributionSummary entityLoads = meterRegistry.find(QueryMetricsInterceptor.ENTITY_LOADS_METRIC).tag("uri", "/id/{id}").summary();
+		
+		assertNotNull(statements);
+		assertEquals(2, statements.totalAmount());
+		assertEquals(1, entityLoads.totalAmount());
+		assertEquals(3000, meterRegistry.find(QueryMetricsInterceptor.STATEMENT_TIME_METRIC).timer().totalTime(TimeUnit.NANOSECONDS));
+		assertNull(RequestQueryStats.current());
+	}
+	
+	@Test
+	void testRecordQueries_SameEndpoint() {
+		for (int i = 0; i < 2; i++) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items/id/" + i);
+			request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/id/{id}");
+			
+			interceptor.preHandle(request, new MockHttpServletResponse(), null);
+			
+			RequestQueryStats.current().statementExecuted(1000);
+			
+			interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+		}
+		
+		assertEquals(1, meterRegistry.find(QueryMetricsInterceptor.STATEMENTS_METRIC).summaries().size());
+		assertEquals(2, meterRegistry.find(QueryMetricsInterceptor.STATEMENTS_METRIC).tag("uri", "/id/{id}").summary().count());
+	}
+	
+	@Test
+	void testRecordQueries_NotStarted() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items/id/1");
+		
+		interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+		
+		assertNull(meterRegistry.find(QueryMetricsInterceptor.STATEMENTS_METRIC).summary());
+	}
+}
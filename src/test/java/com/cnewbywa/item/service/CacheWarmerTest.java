@@ -0,0 +1,154 @@
+package com.cnewbywa.item.service;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cnewbywa.item.model.CountMode;
+import com.cnewbywa.item.model.ItemBatchResultDto;
+import com.cnewbywa.item.model.ItemDetailedResponseDto;
+import com.cnewbywa.item.repository.CacheWarmupKeyRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmerTest {
+
+	@InjectMocks
+	private CacheWarmer cacheWarmer;
+	
+	@Mock
+	private ItemService itemService;
+	
+	@Mock
+	private ItemResponseService itemResponseService;
+	
+	@Mock
+	private CacheWarmupKeyRepository cacheWarmupKeyRepository;
+	
+	@Mock
+	private TransactionTemplate transactionTemplate;
+	
+	@Mock
+	private TransactionStatus transactionStatus;
+	
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	
+	private UUID item1Id = UUID.randomUUID();
+	private UUID item2Id = UUID.randomUUID();
+	private UUID item3Id = UUID.randomUUID();
+	
+	@BeforeEach
+	void setup() {
+		ReflectionTestUtils.setField(cacheWarmer, "enabled", true);
+		ReflectionTestUtils.setField(cacheWarmer, "sampleRate", 1.0);
+		ReflectionTestUtils.setField(cacheWarmer, "maxTracked", 2);
+		ReflectionTestUtils.setField(cacheWarmer, "maxKeys", 10);
+		ReflectionTestUtils.setField(cacheWarmer, "persistInterval", 300000L);
+		ReflectionTestUtils.setField(cacheWarmer, "retention", 60000L);
+		ReflectionTestUtils.setField(cacheWarmer, "batchSize", 2);
+		ReflectionTestUtils.setField(cacheWarmer, "parallelism", 2);
+		ReflectionTestUtils.setField(cacheWarmer, "maxRate", 1000.0);
+		ReflectionTestUtils.setField(cacheWarmer, "timeout", 5000L);
+		ReflectionTestUtils.setField(cacheWarmer, "meterRegistry", meterRegistry);
+		
+		cacheWarmer.init();
+	}
+	
+	@Test
+	void testPersistHotKeys() {
+		Mockito.doAnswer(invocation -> {
+			invocation.<Consumer<TransactionStatus>>getArgument(0).accept(transactionStatus);
+			
+			return null;
+		}).when(transactionTemplate).executeWithoutResult(Mockito.any());
+		
+		cacheWarmer.recordItem(item1Id);
+		cacheWarmer.recordItem(item1Id);
+		cacheWarmer.recordList(PageRequest.of(1, 20, Sort.by(Sort.Order.desc("name"))), CountMode.NONE);
+		// not tracked as the map is full
+		cacheWarmer.recordItem(item2Id);
+		
+		cacheWarmer.persistHotKeys();
+		
+		Mockito.verify(cacheWarmupKeyRepository).addHits(Mockito.eq("item|" + item1Id), Mockito.eq(2L), Mockito.any(Instant.class), Mockito.eq(300000L));
+		Mockito.verify(cacheWarmupKeyRepository).addHits(Mockito.eq("all|1|20|name:DESC|NONE"), Mockito.eq(1L), Mockito.any(Instant.class), Mockito.eq(300000L));
+		Mockito.verify(cacheWarmupKeyRepository, Mockito.never()).addHits(Mockito.eq("item|" + item2Id), Mockito.anyLong(), Mockito.any(Instant.class), Mockito.anyLong());
+		Mockito.verify(cacheWarmupKeyRepository).deleteUpdatedBefore(Mockito.any(Instant.class));
+	}
+	
+	@Test
+	void testPersistHotKeys_LongKey() {
+		Mockito.doAnswer(invocation -> {
+			invocation.<Consumer<TransactionStatus>>getArgument(0).accept(transactionStatus);
+			
+			return null;
+		}).when(transactionTemplate).executeWithoutResult(Mockito.any());
+		
+		// the key would not fit to the cache_key column
+		cacheWarmer.recordUserList("u".repeat(CacheWarmer.MAX_KEY_LENGTH), PageRequest.of(0, 20), CountMode.NONE);
+		cacheWarmer.recordItem(item1Id);
+		
+		cacheWarmer.persistHotKeys();
+		
+		Mockito.verify(cacheWarmupKeyRepository).addHits(Mockito.eq("item|" + item1Id), Mockito.eq(1L), Mockito.any(Instant.class), Mockito.eq(300000L));
+		Mockito.verify(cacheWarmupKeyRepository, Mockito.times(1)).addHits(Mockito.anyString(), Mockito.anyLong(), Mockito.any(Instant.class), Mockito.anyLong());
+	}
+	
+	@Test
+	void testWarmUp() {
+		List<String> keys = Arrays.asList("item|" + item1Id, "all|0|10||EXACT", "item|" + item2Id, "item|" + item3Id, "user|2|5|name:ASC,id:DESC|ESTIMATED|user|1");
+		
+		cacheWarmer.warmUp(keys);
+		
+		Mockito.verify(itemService).getItemsByIds(Arrays.asList(item1Id, item2Id));
+		Mockito.verify(itemService).getItemsByIds(Arrays.asList(item3Id));
+		Mockito.verify(itemService).getItems(PageRequest.of(0, 10), CountMode.EXACT);
+		Mockito.verify(itemService).getItemsByUser("user|1", PageRequest.of(2, 5, Sort.by(Sort.Order.asc("name"), Sort.Order.desc("id"))), CountMode.ESTIMATED);
+		
+		Assertions.assertEquals(5.0, meterRegistry.get(CacheWarmer.WARMUP_METRIC_NAME).tag("result", "loaded").counter().count());
+	}
+	
+	@Test
+	void testWarmUp_ResponseCache() {
+		ReflectionTestUtils.setField(cacheWarmer, "responseCacheEnabled", true);
+		
+		Mockito.when(itemService.getItemsByIds(Arrays.asList(item1Id, item2Id))).thenReturn(Arrays.asList(
+				ItemBatchResultDto.builder().id(item1Id).found(true).item(ItemDetailedResponseDto.builder().id(item1Id).build()).build(),
+				ItemBatchResultDto.builder().id(item2Id).found(false).build()));
+		
+		cacheWarmer.warmUp(Arrays.asList("item|" + item1Id, "item|" + item2Id));
+		
+		Mockito.verify(itemResponseService).getItem(item1Id);
+		Mockito.verify(itemResponseService, Mockito.never()).getItem(item2Id);
+	}
+	
+	@Test
+	void testWarmUp_LoadFails() {
+		Mockito.when(itemService.getItemsByIds(Arrays.asList(item1Id))).thenThrow(new IllegalStateException("Database not available"));
+		
+		cacheWarmer.warmUp(Arrays.asList("item|" + item1Id, "all|0|10||NONE"));
+		
+		Mockito.verify(itemService).getItems(PageRequest.of(0, 10), CountMode.NONE);
+		
+		Assertions.assertEquals(1.0, meterRegistry.get(CacheWarmer.WARMUP_METRIC_NAME).tag("result", "failed").counter().count());
+		Assertions.assertEquals(1.0, meterRegistry.get(CacheWarmer.WARMUP_METRIC_NAME).tag("result", "loaded").counter().count());
+	}
+}
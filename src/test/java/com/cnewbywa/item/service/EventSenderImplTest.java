@@ -0,0 +1,99 @@
+package com.cnewbywa.item.service;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cnewbywa.item.error.EventBacklogFullException;
+import com.cnewbywa.item.model.ItemAction;
+import com.cnewbywa.item.model.OutboxEvent;
+import com.cnewbywa.item.model.OutboxOverflowPolicy;
+import com.cnewbywa.item.repository.OutboxEventRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class EventSenderImplTest {
+
+	@InjectMocks
+	private EventSenderImpl eventSender;
+	
+	@Mock
+	private OutboxEventRepository outboxEventRepository;
+	
+	@Mock
+	private OutboxRelay outboxRelay;
+	
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	
+	private UUID itemId = UUID.randomUUID();
+	
+	@BeforeEach
+	void setup() {
+		ReflectionTestUtils.setField(eventSender, "overflowPolicy", OutboxOverflowPolicy.SPILL);
+		ReflectionTestUtils.setField(eventSender, "meterRegistry", meterRegistry);
+		
+		eventSender.init();
+	}
+	
+	@Test
+	void testSendEvent_Success() {
+		eventSender.sendEvent(itemId, 0L, ItemAction.ADD, "Item was added");
+		
+		ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+		
+		Mockito.verify(outboxEventRepository).save(captor.capture());
+		
+		Assertions.assertEquals(itemId, captor.getValue().getItemId());
+		Assertions.assertEquals(0L, captor.getValue().getItemVersion());
+		Assertions.assertEquals(ItemAction.ADD, captor.getValue().getAction());
+		Assertions.assertEquals("Item was added", captor.getValue().getMessage());
+	}
+	
+	@Test
+	void testSendEvent_BacklogFull_Spill() {
+		Mockito.when(outboxRelay.isBacklogFull()).thenReturn(true);
+		
+		eventSender.sendEvent(itemId, 0L, ItemAction.ADD, "Item was added");
+		
+		Mockito.verify(outboxEventRepository).save(Mockito.any(OutboxEvent.class));
+		Assertions.assertEquals(1.0, meterRegistry.get(EventSenderImpl.OVERFLOW_METRIC_NAME).tag("policy", "SPILL").counter().count());
+	}
+	
+	@Test
+	void testSendEvent_BacklogFull_Drop() {
+		ReflectionTestUtils.setField(eventSender, "overflowPolicy", OutboxOverflowPolicy.DROP);
+		eventSender.init();
+		
+		Mockito.when(outboxRelay.isBacklogFull()).thenReturn(true);
+		
+		eventSender.sendEvent(itemId, 0L, ItemAction.ADD, "Item was added");
+		
+		Mockito.verifyNoInteractions(outboxEventRepository);
+		Assertions.assertEquals(1.0, meterRegistry.get(EventSenderImpl.OVERFLOW_METRIC_NAME).tag("policy", "DROP").counter().count());
+	}
+	
+	@Test
+	void testSendEvent_BacklogFull_Reject() {
+		ReflectionTestUtils.setField(eventSender, "overflowPolicy", OutboxOverflowPolicy.REJECT);
+		eventSender.init();
+		
+		Mockito.when(outboxRelay.isBacklogFull()).thenReturn(true);
+		
+		Assertions.assertThrows(EventBacklogFullException.class, () -> {
+			eventSender.sendEvent(itemId, 0L, ItemAction.ADD, "Item was added");
+		});
+		
+		Mockito.verifyNoInteractions(outboxEventRepository);
+	}
+}
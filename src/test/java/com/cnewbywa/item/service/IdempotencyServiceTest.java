@@ -0,0 +1,159 @@
+package com.cnewbywa.item.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cnewbywa.item.error.IdempotencyKeyReusedException;
+import com.cnewbywa.item.error.InvalidIdempotencyKeyException;
+import com.cnewbywa.item.error.ItemNotFoundException;
+import com.cnewbywa.item.model.ItemDetailedResponseDto;
+import com.cnewbywa.item.model.ItemDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+	@InjectMocks
+	private IdempotencyService idempotencyService;
+	
+	@Mock
+	private StringRedisTemplate redisTemplate;
+	
+	@Mock
+	private ValueOperations<String, String> valueOperations;
+	
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	
+	private ItemDto input = new ItemDto("Item 1", "Description of item 1");
+	
+	private ItemDetailedResponseDto response = ItemDetailedResponseDto.builder().id(UUID.randomUUID()).name("Item 1").description("Description of item 1").version(0L).build();
+	
+	@BeforeEach
+	void setup() {
+		ReflectionTestUtils.setField(idempotencyService, "ttl", 60000L);
+		ReflectionTestUtils.setField(idempotencyService, "lockTimeout", 1000L);
+		ReflectionTestUtils.setField(idempotencyService, "lockTtl", 300000L);
+		ReflectionTestUtils.setField(idempotencyService, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+		ReflectionTestUtils.setField(idempotencyService, "meterRegistry", meterRegistry);
+		
+		idempotencyService.init();
+	}
+	
+	@Test
+	void testExecute_FirstRequest() {
+		Mockito.when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		Mockito.when(valueOperations.setIfAbsent(Mockito.eq("idempotency:user1:key-1"), Mockito.anyString(), Mockito.eq(Duration.ofMillis(300000)))).thenReturn(true);
+		
+		ResponseEntity<ItemDetailedResponseDto> result = idempotencyService.execute("key-1", "user1", "POST", input, ItemDetailedResponseDto.class,
+				() -> new ResponseEntity<>(response, HttpStatus.CREATED));
+		
+		Assertions.assertEquals(HttpStatus.CREATED, result.getStatusCode());
+		Assertions.assertSame(response, result.getBody());
+		
+		Mockito.verify(valueOperations).set(Mockito.eq("idempotency:user1:key-1"), Mockito.anyString(), Mockito.eq(Duration.ofMillis(60000)));
+		Assertions.assertEquals(1.0, meterRegistry.get(IdempotencyService.METRIC_NAME).tag("result", "executed").counter().count());
+	}
+	
+	@Test
+	void testExecute_Replay() {
+		Mockito.when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		Mockito.when(valueOperations.setIfAbsent(Mockito.eq("idempotency:user1:key-1"), Mockito.anyString(), Mockito.any(Duration.class))).thenReturn(true, false);
+		
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag("\"0\"");
+		
+		idempotencyService.execute("key-1", "user1", "POST", input, ItemDetailedResponseDto.class, () -> new ResponseEntity<>(response, headers, HttpStatus.CREATED));
+		
+		ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+		Mockito.verify(valueOperations).set(Mockito.eq("idempotency:user1:key-1"), captor.capture(), Mockito.any(Duration.class));
+		Mockito.when(valueOperations.get("idempotency:user1:key-1")).thenReturn(captor.getValue());
+		
+		ResponseEntity<ItemDetailedResponseDto> result = idempotencyService.execute("key-1", "user1", "POST", input, ItemDetailedResponseDto.class, () -> {
+			throw new IllegalStateException("The request must not be run again");
+		});
+		
+		Assertions.assertEquals(HttpStatus.CREATED, result.getStatusCode());
+		Assertions.assertEquals(response.getId(), result.getBody().getId());
+		Assertions.assertEquals("\"0\"", result.getHeaders().getETag());
+		Assertions.assertEquals("true", result.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+		Assertions.assertEquals(1.0, meterRegistry.get(IdempotencyService.METRIC_NAME).tag("result", "replayed").counter().count());
+	}
+	
+	@Test
+	void testExecute_Failure_KeyReused() {
+		Mockito.when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		Mockito.when(valueOperations.setIfAbsent(Mockito.eq("idempotency:user1:key-1"), Mockito.anyString(), Mockito.any(Duration.class))).thenReturn(true, false);
+		
+		idempotencyService.execute("key-1", "user1", "POST", input, ItemDetailedResponseDto.class, () -> new ResponseEntity<>(response, HttpStatus.CREATED));
+		
+		ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+		Mockito.verify(valueOperations).set(Mockito.eq("idempotency:user1:key-1"), captor.capture(), Mockito.any(Duration.class));
+		Mockito.when(valueOperations.get("idempotency:user1:key-1")).thenReturn(captor.getValue());
+		
+		ItemDto otherInput = new ItemDto("Item 2", "Description of item 2");
+		
+		Assertions.assertThrows(IdempotencyKeyReusedException.class, () -> {
+			idempotencyService.execute("key-1", "user1", "POST", otherInput, ItemDetailedResponseDto.class, () -> new ResponseEntity<>(response, HttpStatus.CREATED));
+		});
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	void testExecute_Failure_RequestFails() {
+		Mockito.when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		Mockito.when(valueOperations.setIfAbsent(Mockito.eq("idempotency:user1:key-1"), Mockito.anyString(), Mockito.any(Duration.class))).thenReturn(true);
+		
+		Assertions.assertThrows(ItemNotFoundException.class, () -> {
+			idempotencyService.execute("key-1", "user1", "DELETE /1", null, Void.class, () -> {
+				throw new ItemNotFoundException("Item not found");
+			});
+		});
+		
+		// the key is released so that the request can be retried
+		Mockito.verify(redisTemplate).execute(Mockito.any(RedisScript.class), Mockito.eq(List.of("idempotency:user1:key-1")), Mockito.anyString());
+		Mockito.verify(valueOperations, Mockito.never()).set(Mockito.anyString(), Mockito.anyString(), Mockito.any(Duration.class));
+	}
+	
+	@Test
+	void testExecute_RedisNotAvailable() {
+		Mockito.when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		Mockito.when(valueOperations.setIfAbsent(Mockito.anyString(), Mockito.anyString(), Mockito.any(Duration.class))).thenThrow(new RedisConnectionFailureException("Redis not available"));
+		
+		ResponseEntity<ItemDetailedResponseDto> result = idempotencyService.execute("key-1", "user1", "POST", input, ItemDetailedResponseDto.class,
+				() -> new ResponseEntity<>(response, HttpStatus.CREATED));
+		
+		Assertions.assertSame(response, result.getBody());
+	}
+	
+	@Test
+	void testExecute_Failure_InvalidKey() {
+		Assertions.assertThrows(InvalidIdempotencyKeyException.class, () -> {
+			idempotencyService.execute(" ", "user1", "POST", input, ItemDetailedResponseDto.class, () -> new ResponseEntity<>(response, HttpStatus.CREATED));
+		});
+		
+		Mockito.verifyNoInteractions(redisTemplate);
+	}
+}
@@ -2,31 +2,71 @@ package com.cnewbywa.item.service;
 
 import org.junit.jupiter.api.Assertions;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.cnewbywa.item.cache.ItemListCacheKeys;
+import com.cnewbywa.item.datasource.ReadYourWritesTracker;
+import com.cnewbywa.item.error.BulkLimitExceededException;
+import com.cnewbywa.item.error.InvalidCursorException;
+import com.cnewbywa.item.error.InvalidSearchQueryException;
 import com.cnewbywa.item.error.ItemNotFoundException;
+import com.cnewbywa.item.error.PreconditionFailedException;
+import com.cnewbywa.item.model.CountMode;
 import com.cnewbywa.item.model.Item;
 import com.cnewbywa.item.model.ItemAction;
+import com.cnewbywa.item.model.ItemBatchResultDto;
+import com.cnewbywa.item.model.ItemBulkUpdateDto;
+import com.cnewbywa.item.model.ItemCursor;
 import com.cnewbywa.item.model.ItemDetailedResponseDto;
+import com.cnewbywa.item.model.ItemDetails;
 import com.cnewbywa.item.model.ItemDto;
 import com.cnewbywa.item.model.ItemListResponseDto;
+import com.cnewbywa.item.model.ItemOwner;
+import com.cnewbywa.item.model.ItemRank;
+import com.cnewbywa.item.model.ItemScrollResponseDto;
+import com.cnewbywa.item.model.ItemSearchCursor;
+import com.cnewbywa.item.model.ItemSearchQuery;
+import com.cnewbywa.item.model.ItemSummary;
+import com.cnewbywa.item.model.SerializedItemResponse;
 import com.cnewbywa.item.repository.ItemRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 
 @ExtendWith(MockitoExtension.class)
 class ItemServiceTest {
@@ -40,32 +80,62 @@ class ItemServiceTest {
 	@Mock
 	private EventSender eventSender;
 	
+	@Mock
+	private ItemListCacheKeys itemListCacheKeys;
+	
+	@Mock
+	private ItemCountEstimator itemCountEstimator;
+	
+	@Mock
+	private CacheManager cacheManager;
+	
+	@Mock
+	private Cache cache;
+	
+	@Mock
+	private EntityManager entityManager;
+	
+	@Mock
+	private AuditorAware<String> auditorAware;
+	
+	@Mock
+	private ReadYourWritesTracker readYourWritesTracker;
+	
+	private ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+	
 	private UUID item1Id = UUID.randomUUID();
 	private UUID item2Id = UUID.randomUUID();
 	
+	@BeforeEach
+	void setup() {
+		ReflectionTestUtils.setField(itemService, "maxScrollSize", 100);
+		ReflectionTestUtils.setField(itemService, "maxBulkSize", 2);
+		ReflectionTestUtils.setField(itemService, "meterRegistry", new SimpleMeterRegistry());
+	}
+	
 	@Test
 	void testGetItem_Success() {
 		Item dbItem = Item.builder().itemId(item1Id).build();
 		
-		Mockito.when(itemRepository.findByItemId(item1Id)).thenReturn(Optional.of(dbItem));
+		Mockito.when(itemRepository.findDetailsByItemId(item1Id)).thenReturn(Optional.of(createDetails(dbItem)));
 		
 		ItemDetailedResponseDto returnedItem = itemService.getItem(item1Id);
 		
 		Assertions.assertNotNull(returnedItem);
 		Assertions.assertEquals(item1Id, returnedItem.getId());
-			
-		Mockito.verify(itemRepository).findByItemId(item1Id);
+		
+		Mockito.verify(itemRepository).findDetailsByItemId(item1Id);
 	}
 	
 	@Test
 	void testGetItem_Failute() {
-		Mockito.when(itemRepository.findByItemId(item1Id)).thenReturn(Optional.empty());
+		Mockito.when(itemRepository.findDetailsByItemId(item1Id)).thenReturn(Optional.empty());
 		
 		Assertions.assertThrows(ItemNotFoundException.class, () -> {
 			itemService.getItem(item1Id);
 		});
 		
-		Mockito.verify(itemRepository).findByItemId(item1Id);
+		Mockito.verify(itemRepository).findDetailsByItemId(item1Id);
 	}
 	
 	@Test
@@ -73,26 +143,77 @@ class ItemServiceTest {
 		Item dbItem = Item.builder().itemId(item1Id).build();
 		Item dbItem2 = Item.builder().itemId(item2Id).build();
 		
-		Mockito.when(itemRepository.findAll(Mockito.any(Pageable.class))).thenReturn(new PageImpl<>(new ArrayList<>(Arrays.asList(dbItem, dbItem2))));
+		Mockito.when(itemRepository.findPageBy(Mockito.any(Pageable.class))).thenReturn(new PageImpl<>(new ArrayList<>(Arrays.asList(createSummary(dbItem), createSummary(dbItem2)))));
 		
-		ItemListResponseDto response = itemService.getItems(PageRequest.of(0, 5, Sort.Direction.ASC, "id"));
+		ItemListResponseDto response = itemService.getItems(PageRequest.of(0, 5, Sort.Direction.ASC, "id"), CountMode.EXACT);
 		
 		Assertions.assertNotNull(response);
 		Assertions.assertEquals(2, response.getAmount());
 		
-		Mockito.verify(itemRepository).findAll(Mockito.any(Pageable.class));
+		Mockito.verify(itemRepository).findPageBy(Mockito.any(Pageable.class));
 	}
 	
 	@Test
 	void testGetItems_Success_NoResult() {
-		Mockito.when(itemRepository.findAll(Mockito.any(Pageable.class))).thenReturn(new PageImpl<>(new ArrayList<>()));
+		Mockito.when(itemRepository.findPageBy(Mockito.any(Pageable.class))).thenReturn(new PageImpl<>(new ArrayList<>()));
+		
+		ItemListResponseDto response = itemService.getItems(PageRequest.of(0, 5, Sort.Direction.ASC, "id"), CountMode.EXACT);
+		
+		Assertions.assertNotNull(response);
+		Assertions.assertEquals(0, response.getAmount());
+		
+		Mockito.verify(itemRepository).findPageBy(Mockito.any(Pageable.class));
+	}
+	
+	@Test
+	void testGetItems_Success_NoCount() {
+		Item dbItem = Item.builder().itemId(item1Id).build();
+		
+		Mockito.when(itemRepository.findSliceBy(Mockito.any(Pageable.class))).thenReturn(new SliceImpl<>(new ArrayList<>(Arrays.asList(createSummary(dbItem))), PageRequest.of(0, 1), true));
+		
+		ItemListResponseDto response = itemService.getItems(PageRequest.of(0, 1), CountMode.NONE);
+		
+		Assertions.assertNotNull(response);
+		Assertions.assertEquals(1, response.getAmount());
+		Assertions.assertNull(response.getTotalAmount());
+		Assertions.assertTrue(response.isHasNext());
+		
+		Mockito.verify(itemRepository).findSliceBy(Mockito.any(Pageable.class));
+		Mockito.verify(itemRepository, Mockito.never()).findPageBy(Mockito.any(Pageable.class));
+		Mockito.verifyNoInteractions(itemCountEstimator);
+	}
+	
+	@Test
+	void testGetItems_Success_EstimatedCount() {
+		Item dbItem = Item.builder().itemId(item1Id).build();
+		
+		Mockito.when(itemRepository.findSliceBy(Mockito.any(Pageable.class))).thenReturn(new SliceImpl<>(new ArrayList<>(Arrays.asList(createSummary(dbItem))), PageRequest.of(0, 1), false));
+		Mockito.when(itemCountEstimator.estimateTotal()).thenReturn(1000L);
+		
+		ItemListResponseDto response = itemService.getItems(PageRequest.of(0, 1), CountMode.ESTIMATED);
+		
+		Assertions.assertNotNull(response);
+		Assertions.assertEquals(1, response.getAmount());
+		Assertions.assertEquals(1000L, response.getTotalAmount());
+		Assertions.assertTrue(response.isTotalAmountEstimated());
+		Assertions.assertFalse(response.isHasNext());
 		
-		ItemListResponseDto response = itemService.getItems(PageRequest.of(0, 5, Sort.Direction.ASC, "id"));
+		Mockito.verify(itemCountEstimator).estimateTotal();
+	}
+	
+	@Test
+	void testGetItemsByUser_Success_EstimatedCount() {
+		Mockito.when(itemRepository.findSliceByCreatedBy(Mockito.eq("user1"), Mockito.any(Pageable.class))).thenReturn(new SliceImpl<>(new ArrayList<>()));
+		Mockito.when(itemCountEstimator.estimateTotalByUser("user1")).thenReturn(0L);
+		
+		ItemListResponseDto response = itemService.getItemsByUser("user1", PageRequest.of(0, 5), CountMode.ESTIMATED);
 		
 		Assertions.assertNotNull(response);
 		Assertions.assertEquals(0, response.getAmount());
+		Assertions.assertEquals(0L, response.getTotalAmount());
 		
-		Mockito.verify(itemRepository).findAll(Mockito.any(Pageable.class));
+		Mockito.verify(itemRepository, Mockito.never()).findAllByCreatedBy(Mockito.anyString(), Mockito.any(Pageable.class));
+		Mockito.verify(itemCountEstimator).estimateTotalByUser("user1");
 	}
 	
 	@Test
@@ -100,9 +221,9 @@ class ItemServiceTest {
 		Item dbItem = Item.builder().itemId(item1Id).build();
 		Item dbItem2 = Item.builder().itemId(item2Id).build();
 		
-		Mockito.when(itemRepository.findAllByCreatedBy(Mockito.eq("user1"), Mockito.any(Pageable.class))).thenReturn(new PageImpl<>(new ArrayList<>(Arrays.asList(dbItem, dbItem2))));
+		Mockito.when(itemRepository.findAllByCreatedBy(Mockito.eq("user1"), Mockito.any(Pageable.class))).thenReturn(new PageImpl<>(new ArrayList<>(Arrays.asList(createSummary(dbItem), createSummary(dbItem2)))));
 		
-		ItemListResponseDto response = itemService.getItemsByUser("user1", PageRequest.of(0, 5, Sort.Direction.ASC, "id"));
+		ItemListResponseDto response = itemService.getItemsByUser("user1", PageRequest.of(0, 5, Sort.Direction.ASC, "id"), CountMode.EXACT);
 		
 		Assertions.assertNotNull(response);
 		Assertions.assertEquals(2, response.getAmount());
@@ -114,7 +235,7 @@ class ItemServiceTest {
 	void testGetItemsByUser_Success_NoResult() {
 		Mockito.when(itemRepository.findAllByCreatedBy(Mockito.eq("user2"), Mockito.any(Pageable.class))).thenReturn(new PageImpl<>(new ArrayList<>()));
 		
-		ItemListResponseDto response = itemService.getItemsByUser("user2", PageRequest.of(0, 5, Sort.Direction.ASC, "id"));
+		ItemListResponseDto response = itemService.getItemsByUser("user2", PageRequest.of(0, 5, Sort.Direction.ASC, "id"), CountMode.EXACT);
 		
 		Assertions.assertNotNull(response);
 		Assertions.assertEquals(0, response.getAmount());
@@ -122,12 +243,171 @@ class ItemServiceTest {
 		Mockito.verify(itemRepository).findAllByCreatedBy(Mockito.eq("user2"), Mockito.any(Pageable.class));
 	}
 	
+	@Test
+	void testScrollItems_Success_FirstPage() {
+		Instant now = Instant.now();
+		
+		Item dbItem = Item.builder().id(3L).itemId(item1Id).createTime(now).build();
+		Item dbItem2 = Item.builder().id(2L).itemId(item2Id).createTime(now.minusSeconds(1)).build();
+		Item dbItem3 = Item.builder().id(1L).itemId(UUID.randomUUID()).createTime(now.minusSeconds(2)).build();
+		
+		Mockito.when(itemRepository.findFirstKeysetPage(3)).thenReturn(Arrays.asList(createSummary(dbItem), createSummary(dbItem2), createSummary(dbItem3)));
+		
+		ItemScrollResponseDto response = itemService.scrollItems(null, 2);
+		
+		Assertions.assertNotNull(response);
+		Assertions.assertEquals(2, response.getAmount());
+		Assertions.assertEquals(item2Id, response.getItems().get(1).getId());
+		Assertions.assertEquals(new ItemCursor(now.minusSeconds(1), 2L), ItemCursor.decode(response.getNextCursor()));
+		
+		Mockito.verify(itemRepository).findFirstKeysetPage(3);
+	}
+	
+	@Test
+	void testScrollItems_Success_LastPage() {
+		Instant now = Instant.now();
+		
+		Item dbItem = Item.builder().id(1L).itemId(item1Id).createTime(now.minusSeconds(2)).build();
+		
+		Mockito.when(itemRepository.findKeysetPageAfter(now, 2L, 3)).thenReturn(Arrays.asList(createSummary(dbItem)));
+		
+		ItemScrollResponseDto response = itemService.scrollItems(new ItemCursor(now, 2L).encode(), 2);
+		
+		Assertions.assertNotNull(response);
+		Assertions.assertEquals(1, response.getAmount());
+		Assertions.assertNull(response.getNextCursor());
+		
+		Mockito.verify(itemRepository).findKeysetPageAfter(now, 2L, 3);
+	}
+	
+	@Test
+	void testScrollItems_Failure_InvalidCursor() {
+		Assertions.assertThrows(InvalidCursorException.class, () -> {
+			itemService.scrollItems("invalid", 2);
+		});
+		
+		Mockito.verify(itemRepository, Mockito.never()).findKeysetPageAfter(Mockito.any(), Mockito.anyLong(), Mockito.anyInt());
+	}
+	
+	@Test
+	void testScrollItemsByUser_Success() {
+		Mockito.when(itemRepository.findFirstKeysetPageByCreatedBy("user1", 101)).thenReturn(new ArrayList<>());
+		
+		ItemScrollResponseDto response = itemService.scrollItemsByUser("user1", null, 500);
+		
+		Assertions.assertNotNull(response);
+		Assertions.assertEquals(0, response.getAmount());
+		Assertions.assertNull(response.getNextCursor());
+		
+		Mockito.verify(itemRepository).findFirstKeysetPageByCreatedBy("user1", 101);
+	}
+	
+	@Test
+	void testSearchItems_Success_FirstPage() {
+		Item dbItem = Item.builder().id(3L).itemId(item1Id).name("Item 1").build();
+		Item dbItem2 = Item.builder().id(2L).itemId(item2Id).name("Item 2").build();
+		
+		Mockito.when(itemRepository.findFirstSearchPage("item", 3)).thenReturn(Arrays.asList(createRank(2L, 0.5f), createRank(3L, 0.2f), createRank(1L, 0.1f)));
+		Mockito.when(itemRepository.findSummariesByIdIn(Arrays.asList(2L, 3L))).thenReturn(Arrays.asList(createSummary(dbItem), createSummary(dbItem2)));
+		
+		ItemScrollResponseDto response = itemService.searchItems(ItemSearchQuery.of(" Item "), null, 2);
+		
+		Assertions.assertNotNull(response);
+		Assertions.assertEquals(2, response.getAmount());
+		Assertions.assertEquals(item2Id, response.getItems().get(0).getId());
+		Assertions.assertEquals(item1Id, response.getItems().get(1).getId());
+		Assertions.assertEquals(new ItemSearchCursor(0.2f, 3L), ItemSearchCursor.decode(response.getNextCursor()));
+	}
+	
+	@Test
+	void testSearchItems_Success_LastPage() {
+		Item dbItem = Item.builder().id(1L).itemId(item1Id).name("Item 1").build();
+		
+		Mockito.when(itemRepository.findSearchPageAfter("item", 0.2f, 3L, 3)).thenReturn(Arrays.asList(createRank(1L, 0.1f)));
+		Mockito.when(itemRepository.findSummariesByIdIn(Arrays.asList(1L))).thenReturn(Arrays.asList(createSummary(dbItem)));
+		
+		ItemScrollResponseDto response = itemService.searchItems(ItemSearchQuery.of("item"), new ItemSearchCursor(0.2f, 3L).encode(), 2);
+		
+		Assertions.assertNotNull(response);
+		Assertions.assertEquals(1, response.getAmount());
+		Assertions.assertNull(response.getNextCursor());
+	}
+	
+	@Test
+	void testSearchItems_Failure_InvalidQuery() {
+		Assertions.assertThrows(InvalidSearchQueryException.class, () -> {
+			itemService.searchItems(ItemSearchQuery.of("   "), null, 2);
+		});
+		
+		Mockito.verifyNoInteractions(itemRepository);
+	}
+	
+	@Test
+	void testSuggestItems_Success() {
+		Item dbItem = Item.builder().id(1L).itemId(item1Id).name("Item 1").build();
+		
+		Mockito.when(itemRepository.findByNamePrefix("ite", "itf", 10)).thenReturn(Arrays.asList(createSummary(dbItem)));
+		
+		ItemScrollResponseDto response = itemService.suggestItems(ItemSearchQuery.of("Ite"), 10);
+		
+		Assertions.assertNotNull(response);
+		Assertions.assertEquals(1, response.getAmount());
+		Assertions.assertEquals(item1Id, response.getItems().get(0).getId());
+	}
+	
+	@Test
+	void testGetItemsByIds_Success() {
+		ItemDetailedResponseDto cachedItem = ItemDetailedResponseDto.builder().id(item1Id).name("Item 1").build();
+		Item dbItem = Item.builder().id(2L).itemId(item2Id).name("Item 2").build();
+		
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		Mockito.when(cache.get(item1Id)).thenReturn(new SimpleValueWrapper(cachedItem));
+		Mockito.when(itemRepository.findAllByItemIds(Arrays.asList(item2Id))).thenReturn(Arrays.asList(createDetails(dbItem)));
+		
+		List<ItemBatchResultDto> response = itemService.getItemsByIds(Arrays.asList(item2Id, item1Id));
+		
+		Assertions.assertEquals(2, response.size());
+		Assertions.assertEquals(item2Id, response.get(0).getId());
+		Assertions.assertTrue(response.get(0).isFound());
+		Assertions.assertEquals("Item 2", response.get(0).getItem().getName());
+		Assertions.assertEquals(item1Id, response.get(1).getId());
+		Assertions.assertSame(cachedItem, response.get(1).getItem());
+		
+		Mockito.verify(cache).putIfAbsent(Mockito.eq(item2Id), Mockito.any(ItemDetailedResponseDto.class));
+		Mockito.verify(cache, Mockito.never()).putIfAbsent(Mockito.eq(item1Id), Mockito.any());
+	}
+	
+	@Test
+	void testGetItemsByIds_Success_NotFound() {
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		Mockito.when(itemRepository.findAllByItemIds(Arrays.asList(item1Id))).thenReturn(new ArrayList<>());
+		
+		List<ItemBatchResultDto> response = itemService.getItemsByIds(Arrays.asList(item1Id, item1Id));
+		
+		Assertions.assertEquals(2, response.size());
+		Assertions.assertFalse(response.get(0).isFound());
+		Assertions.assertNull(response.get(0).getItem());
+		Assertions.assertFalse(response.get(1).isFound());
+		
+		Mockito.verify(cache, Mockito.never()).putIfAbsent(Mockito.any(), Mockito.any());
+	}
+	
+	@Test
+	void testGetItemsByIds_Failure_TooManyItems() {
+		Assertions.assertThrows(BulkLimitExceededException.class, () -> {
+			itemService.getItemsByIds(Arrays.asList(item1Id, item2Id, UUID.randomUUID()));
+		});
+		
+		Mockito.verifyNoInteractions(itemRepository);
+	}
+	
 	@Test
 	void testAddItem_Success() {
 		String name = "Item 1";
 		String description = "Description of item 1";
 		
 		Mockito.when(itemRepository.save(Mockito.any(Item.class))).thenReturn(Item.builder().itemId(item1Id).name(name).description(description).createTime(Instant.now()).build());
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
 		
 		ItemDto itemDto = new ItemDto("Item 1", "Description of item 1");
 		
@@ -139,7 +419,10 @@ class ItemServiceTest {
 		Assertions.assertEquals(itemDto.getDescription(), response.getDescription());
 		
 		Mockito.verify(itemRepository).save(Mockito.any(Item.class));
-		Mockito.verify(eventSender).sendEvent(item1Id, ItemAction.ADD, MessageFormat.format(ItemService.EVENT_MESSAGE__ADD, item1Id));
+		Mockito.verify(eventSender).sendEvent(item1Id, 0L, ItemAction.ADD, MessageFormat.format(ItemService.EVENT_MESSAGE__ADD, item1Id));
+		Mockito.verify(itemListCacheKeys).bumpGenerations("user1");
+		Mockito.verify(readYourWritesTracker).recordWrite("user1");
+		Mockito.verify(cache).put(Mockito.eq(item1Id), Mockito.any(ItemDetailedResponseDto.class));
 	}
 	
 	@Test
@@ -147,43 +430,285 @@ class ItemServiceTest {
 		String name = "Item 1";
 		String description = "Description of item 1";
 		
-		Item item = Item.builder().itemId(item1Id).name(name).description(description).build();
-		
-		Mockito.when(itemRepository.findByItemId(item1Id)).thenReturn(Optional.of(item));
-		Mockito.when(itemRepository.save(item)).thenReturn(Item.builder().itemId(item1Id).name(name).description(description).createTime(Instant.now()).build());
+		Mockito.when(auditorAware.getCurrentAuditor()).thenReturn(Optional.of("user1"));
+		Mockito.when(itemRepository.updateByItemId(Mockito.eq(item1Id), Mockito.eq(name), Mockito.eq(description), Mockito.any(Instant.class), Mockito.eq("user1"), Mockito.isNull()))
+				.thenReturn(Optional.of(Item.builder().itemId(item1Id).name(name).description(description).version(1).createTime(Instant.now()).modifiedBy("user1").build()));
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
 		
 		ItemDto itemDto = new ItemDto("Item 1", "Description of item 1");
 		
-		ItemDetailedResponseDto response = itemService.updateItem(item1Id, itemDto, "user1");
+		ItemDetailedResponseDto response = itemService.updateItem(item1Id, itemDto, "user1", null);
 		
 		Assertions.assertNotNull(response);
 		Assertions.assertEquals(item1Id, response.getId());
 		Assertions.assertEquals(itemDto.getName(), response.getName());
 		Assertions.assertEquals(itemDto.getDescription(), response.getDescription());
+		Assertions.assertEquals(1L, response.getVersion());
 		
-		Mockito.verify(itemRepository).findByItemId(item1Id);
-		Mockito.verify(itemRepository).save(Mockito.any(Item.class));
-		Mockito.verify(eventSender).sendEvent(item1Id, ItemAction.MODIFY, MessageFormat.format(ItemService.EVENT_MESSAGE__MODIFY, item1Id));
+		Mockito.verify(itemRepository, Mockito.never()).findByItemId(Mockito.any(UUID.class));
+		Mockito.verify(itemRepository, Mockito.never()).saveAndFlush(Mockito.any(Item.class));
+		Mockito.verify(eventSender).sendEvent(item1Id, 1L, ItemAction.MODIFY, MessageFormat.format(ItemService.EVENT_MESSAGE__MODIFY, item1Id));
+		Mockito.verify(cache).evict(item1Id);
+		Mockito.verify(cache, Mockito.never()).put(Mockito.any(), Mockito.any());
+	}
+	
+	@Test
+	void testAddItem_Success_ResponseCache() {
+		Cache responseCache = Mockito.mock(Cache.class);
+		
+		ReflectionTestUtils.setField(itemService, "responseCacheEnabled", true);
+		ReflectionTestUtils.setField(itemService, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+		
+		Mockito.when(itemRepository.save(Mockito.any(Item.class))).thenReturn(Item.builder().itemId(item1Id).name("Item 1").description("Description of item 1").build());
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		Mockito.when(cacheManager.getCache(ItemService.RESPONSE_CACHE_NAME)).thenReturn(responseCache);
+		
+		itemService.addItem(new ItemDto("Item 1", "Description of item 1"), "user1");
+		
+		ArgumentCaptor<SerializedItemResponse> captor = ArgumentCaptor.forClass(SerializedItemResponse.class);
+		
+		Mockito.verify(responseCache).put(Mockito.eq(item1Id), captor.capture());
+		
+		Assertions.assertEquals("\"0\"", captor.getValue().eTag());
+		Assertions.assertTrue(new String(captor.getValue().body(), StandardCharsets.UTF_8).contains("\"description\":\"Description of item 1\""));
+	}
+	
+	@Test
+	void testUpdateItem_Success_ResponseCache() {
+		Cache responseCache = Mockito.mock(Cache.class);
+		
+		ReflectionTestUtils.setField(itemService, "responseCacheEnabled", true);
+		
+		Mockito.when(itemRepository.updateByItemId(Mockito.eq(item1Id), Mockito.anyString(), Mockito.anyString(), Mockito.any(Instant.class), Mockito.any(), Mockito.isNull()))
+				.thenReturn(Optional.of(Item.builder().itemId(item1Id).name("Item 1").description("Description of item 1").version(2).build()));
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		Mockito.when(cacheManager.getCache(ItemService.RESPONSE_CACHE_NAME)).thenReturn(responseCache);
+		
+		itemService.updateItem(item1Id, new ItemDto("Item 1", "Description of item 1"), "user1", null);
+		
+		Mockito.verify(responseCache).evict(item1Id);
+		Mockito.verify(responseCache, Mockito.never()).put(Mockito.any(), Mockito.any());
+	}
+	
+	@Test
+	void testUpdateItem_Success_CacheNotAvailable() {
+		Item item = Item.builder().itemId(item1Id).name("Item 1").description("New description of item 1").version(1).build();
+		
+		Mockito.when(itemRepository.updateByItemId(Mockito.eq(item1Id), Mockito.anyString(), Mockito.anyString(), Mockito.any(Instant.class), Mockito.any(), Mockito.isNull()))
+				.thenReturn(Optional.of(item));
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		Mockito.doThrow(new IllegalStateException("Redis not available")).when(cache).evict(item1Id);
+		
+		ItemDetailedResponseDto response = itemService.updateItem(item1Id, new ItemDto("Item 1", "New description of item 1"), "user1", null);
+		
+		Assertions.assertEquals("New description of item 1", response.getDescription());
 	}
 	
 	@Test
 	void testUpdateItem_Failure_IncorrectId() {
-		Mockito.when(itemRepository.findByItemId(item1Id)).thenReturn(Optional.empty());
+		Mockito.when(itemRepository.updateByItemId(Mockito.eq(item1Id), Mockito.anyString(), Mockito.anyString(), Mockito.any(Instant.class), Mockito.any(), Mockito.isNull()))
+				.thenReturn(Optional.empty());
+		
+		Assertions.assertThrows(ItemNotFoundException.class, () -> {
+			itemService.updateItem(item1Id, new ItemDto("Item 1", "Description of item 1"), "user1", null);
+		});
+		
+		Mockito.verify(eventSender, Mockito.never()).sendEvent(Mockito.any(UUID.class), Mockito.anyLong(), Mockito.any(), Mockito.anyString());
+		Mockito.verify(itemListCacheKeys, Mockito.never()).bumpGenerations(Mockito.any());
+	}
+	
+	@Test
+	void testUpdateItem_Failure_IncorrectIdWithVersion() {
+		Mockito.when(itemRepository.updateByItemId(Mockito.eq(item1Id), Mockito.anyString(), Mockito.anyString(), Mockito.any(Instant.class), Mockito.any(), Mockito.eq(1L)))
+				.thenReturn(Optional.empty());
+		Mockito.when(itemRepository.existsByItemId(item1Id)).thenReturn(false);
 		
 		Assertions.assertThrows(ItemNotFoundException.class, () -> {
-			itemService.updateItem(item1Id, new ItemDto("Item 1", "Description of item 1"), "user1");
+			itemService.updateItem(item1Id, new ItemDto("Item 1", "Description of item 1"), "user1", 1L);
 		});
+	}
+	
+	@Test
+	void testUpdateItem_Failure_VersionMismatch() {
+		Mockito.when(itemRepository.updateByItemId(Mockito.eq(item1Id), Mockito.anyString(), Mockito.anyString(), Mockito.any(Instant.class), Mockito.any(), Mockito.eq(1L)))
+				.thenReturn(Optional.empty());
+		Mockito.when(itemRepository.existsByItemId(item1Id)).thenReturn(true);
 		
-		Mockito.verify(itemRepository).findByItemId(item1Id);
-		Mockito.verify(itemRepository, Mockito.never()).save(Mockito.any(Item.class));
-		Mockito.verify(eventSender, Mockito.never()).sendEvent(Mockito.any(UUID.class), Mockito.any(), Mockito.anyString());
+		Assertions.assertThrows(PreconditionFailedException.class, () -> {
+			itemService.updateItem(item1Id, new ItemDto("Item 1", "New description of item 1"), "user1", 1L);
+		});
+		
+		Mockito.verify(eventSender, Mockito.never()).sendEvent(Mockito.any(UUID.class), Mockito.anyLong(), Mockito.any(), Mockito.anyString());
 	}
 	
 	@Test
 	void testDeleteItem_Success() {
+		ItemOwner owner = Mockito.mock(ItemOwner.class);
+		
+		Mockito.when(owner.getCreatedBy()).thenReturn("user2");
+		Mockito.when(owner.getVersion()).thenReturn(3L);
+		Mockito.when(itemRepository.deleteByItemId(item1Id)).thenReturn(Optional.of(owner));
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		
 		itemService.deleteItem(item1Id, "user1");
 		
-		Mockito.verify(itemRepository).deleteByItemId(item1Id);
-		Mockito.verify(eventSender).sendEvent(item1Id, ItemAction.DELETE, MessageFormat.format(ItemService.EVENT_MESSAGE__DELETE, item1Id));
+		Mockito.verify(itemRepository, Mockito.never()).findByItemId(Mockito.any(UUID.class));
+		Mockito.verify(cache).evict(item1Id);
+		Mockito.verify(eventSender).sendEvent(item1Id, 4L, ItemAction.DELETE, MessageFormat.format(ItemService.EVENT_MESSAGE__DELETE, item1Id));
+		Mockito.verify(itemListCacheKeys).bumpGenerations("user2");
+	}
+	
+	@Test
+	void testDeleteItem_EvictedAfterCommit() {
+		ItemOwner owner = Mockito.mock(ItemOwner.class);
+		
+		Mockito.when(owner.getCreatedBy()).thenReturn("user2");
+		Mockito.when(owner.getVersion()).thenReturn(3L);
+		Mockito.when(itemRepository.deleteByItemId(item1Id)).thenReturn(Optional.of(owner));
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		
+		TransactionSynchronizationManager.initSynchronization();
+		
+		try {
+			itemService.deleteItem(item1Id, "user1");
+			
+			Mockito.verify(cache, Mockito.never()).evict(Mockito.any());
+			
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		
+		Mockito.verify(cache).evict(item1Id);
+	}
+	
+	@Test
+	void testDeleteItem_NotFound() {
+		Mockito.when(itemRepository.deleteByItemId(item1Id)).thenReturn(Optional.empty());
+		
+		itemService.deleteItem(item1Id, "user1");
+		
+		Mockito.verifyNoInteractions(eventSender, itemListCacheKeys);
+	}
+	
+	@Test
+	void testAddItems_Success() {
+		Mockito.when(itemRepository.saveAll(Mockito.anyList())).thenReturn(Arrays.asList(Item.builder().itemId(item1Id).name("Item 1").build(), Item.builder().itemId(item2Id).name("Item 2").build()));
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		
+		List<ItemDetailedResponseDto> response = itemService.addItems(Arrays.asList(new ItemDto("Item 1", "Description of item 1"), new ItemDto("Item 2", "Description of item 2")), "user1");
+		
+		Assertions.assertEquals(2, response.size());
+		Assertions.assertEquals(item1Id, response.get(0).getId());
+		Assertions.assertEquals(item2Id, response.get(1).getId());
+		
+		Mockito.verify(itemRepository).saveAll(Mockito.anyList());
+		Mockito.verify(eventSender).sendEvent(item1Id, 0L, ItemAction.ADD, MessageFormat.format(ItemService.EVENT_MESSAGE__ADD, item1Id));
+		Mockito.verify(eventSender).sendEvent(item2Id, 0L, ItemAction.ADD, MessageFormat.format(ItemService.EVENT_MESSAGE__ADD, item2Id));
+		Mockito.verify(itemListCacheKeys).bumpGenerations("user1");
+		Mockito.verify(cache).put(Mockito.eq(item1Id), Mockito.any(ItemDetailedResponseDto.class));
+		Mockito.verify(cache).put(Mockito.eq(item2Id), Mockito.any(ItemDetailedResponseDto.class));
+	}
+	
+	@Test
+	void testAddItems_Failure_TooManyItems() {
+		List<ItemDto> itemDtos = Arrays.asList(new ItemDto("Item 1", "Description"), new ItemDto("Item 2", "Description"), new ItemDto("Item 3", "Description"));
+		
+		Assertions.assertThrows(BulkLimitExceededException.class, () -> {
+			itemService.addItems(itemDtos, "user1");
+		});
+		
+		Mockito.verify(itemRepository, Mockito.never()).saveAll(Mockito.anyList());
+	}
+	
+	@Test
+	void testUpdateItems_Success() {
+		Item item = Item.builder().itemId(item1Id).name("Item 1").description("Description of item 1").createdBy("user2").build();
+		
+		Mockito.when(itemRepository.findAllByItemIdIn(Arrays.asList(item1Id))).thenReturn(Arrays.asList(item));
+		Mockito.when(itemRepository.saveAllAndFlush(Arrays.asList(item))).thenReturn(Arrays.asList(item));
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		
+		List<ItemDetailedResponseDto> response = itemService.updateItems(Arrays.asList(new ItemBulkUpdateDto(item1Id, "Item 1", "New description of item 1")), "user1");
+		
+		Assertions.assertEquals(1, response.size());
+		Assertions.assertEquals("New description of item 1", response.get(0).getDescription());
+		
+		Mockito.verify(cache).evict(item1Id);
+		Mockito.verify(eventSender).sendEvent(item1Id, 0L, ItemAction.MODIFY, MessageFormat.format(ItemService.EVENT_MESSAGE__MODIFY, item1Id));
+		Mockito.verify(itemListCacheKeys).bumpGenerations("user2");
+	}
+	
+	@Test
+	void testUpdateItems_Failure_IncorrectId() {
+		Mockito.when(itemRepository.findAllByItemIdIn(Arrays.asList(item1Id))).thenReturn(new ArrayList<>());
+		
+		Assertions.assertThrows(ItemNotFoundException.class, () -> {
+			itemService.updateItems(Arrays.asList(new ItemBulkUpdateDto(item1Id, "Item 1", "New description of item 1")), "user1");
+		});
+		
+		Mockito.verify(itemRepository, Mockito.never()).saveAllAndFlush(Mockito.anyList());
+		Mockito.verify(eventSender, Mockito.never()).sendEvent(Mockito.any(UUID.class), Mockito.anyLong(), Mockito.any(), Mockito.anyString());
+	}
+	
+	@Test
+	void testDeleteItems_Success() {
+		Item item = Item.builder().id(1L).itemId(item1Id).createdBy("user2").build();
+		
+		Mockito.when(itemRepository.findAllByItemIdIn(Arrays.asList(item1Id, item2Id))).thenReturn(Arrays.asList(item));
+		Mockito.when(cacheManager.getCache("item")).thenReturn(cache);
+		
+		itemService.deleteItems(Arrays.asList(item1Id, item2Id), "user1");
+		
+		Mockito.verify(itemRepository).deleteAllByIdInBatch(Arrays.asList(1L));
+		Mockito.verify(cache).evict(item1Id);
+		Mockito.verify(eventSender).sendEvent(item1Id, 1L, ItemAction.DELETE, MessageFormat.format(ItemService.EVENT_MESSAGE__DELETE, item1Id));
+		Mockito.verify(eventSender, Mockito.never()).sendEvent(Mockito.eq(item2Id), Mockito.anyLong(), Mockito.any(), Mockito.anyString());
+		Mockito.verify(itemListCacheKeys).bumpGenerations("user2");
+	}
+	
+	@Test
+	void testExportItems_Success() throws IOException {
+		ReflectionTestUtils.setField(itemService, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+		
+		Item dbItem = Item.builder().itemId(item1Id).name("Item 1").build();
+		Item dbItem2 = Item.builder().itemId(item2Id).name("Item 2").build();
+		
+		Mockito.when(itemRepository.streamAll()).thenReturn(Stream.of(dbItem, dbItem2));
+		
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		
+		itemService.exportItems(outputStream, false);
+		
+		String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+		
+		Assertions.assertEquals(2, lines.length);
+		Assertions.assertTrue(lines[0].contains(item1Id.toString()));
+		Assertions.assertTrue(lines[1].contains(item2Id.toString()));
+		
+		Mockito.verify(entityManager).detach(dbItem);
+		Mockito.verify(entityManager).detach(dbItem2);
+	}
+	
+	private ItemSummary createSummary(Item item) {
+		return projectionFactory.createProjection(ItemSummary.class, item);
+	}
+	
+	private ItemDetails createDetails(Item item) {
+		return projectionFactory.createProjection(ItemDetails.class, item);
+	}
+	
+	private ItemRank createRank(long id, float rank) {
+		return new ItemRank() {
+			@Override
+			public long getId() {
+				return id;
+			}
+			
+			@Override
+			public float getRank() {
+				return rank;
+			}
+		};
 	}
 }
@@ -0,0 +1,249 @@
+package com.cnewbywa.item.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cnewbywa.events.EventMessage;
+import com.cnewbywa.item.model.ItemAction;
+import com.cnewbywa.item.model.OutboxEvent;
+import com.cnewbywa.item.repository.OutboxEventRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+	@InjectMocks
+	private OutboxRelay outboxRelay;
+	
+	@Mock
+	private OutboxEventRepository outboxEventRepository;
+	
+	@Mock
+	private KafkaTemplate<String, EventMessage> kafkaTemplate;
+	
+	@Mock
+	private TransactionTemplate transactionTemplate;
+	
+	@Mock
+	private TransactionStatus transactionStatus;
+	
+	@Mock
+	private TaskExecutor taskExecutor;
+	
+	@Mock
+	private TaskScheduler taskScheduler;
+	
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	
+	@BeforeEach
+	void setup() {
+		ReflectionTestUtils.setField(outboxRelay, "eventTopic", "events");
+		ReflectionTestUtils.setField(outboxRelay, "applicationId", "item");
+		ReflectionTestUtils.setField(outboxRelay, "batchSize", 10);
+		ReflectionTestUtils.setField(outboxRelay, "sendTimeout", 1000L);
+		ReflectionTestUtils.setField(outboxRelay, "maxBacklog", 100L);
+		ReflectionTestUtils.setField(outboxRelay, "meterRegistry", meterRegistry);
+		
+		outboxRelay.init();
+	}
+	
+	@Test
+	void testRelayEvents_Success() {
+		List<OutboxEvent> events = Arrays.asList(createEvent(1L), createEvent(2L));
+		
+		stubTransactions();
+		
+		Mockito.when(outboxEventRepository.acquireLease(Mockito.anyString(), Mockito.eq(2000L))).thenReturn(1);
+		Mockito.when(outboxEventRepository.findOldest(10)).thenReturn(events);
+		Mockito.when(kafkaTemplate.send(Mockito.<ProducerRecord<String, EventMessage>>any())).thenReturn(CompletableFuture.completedFuture(null));
+		
+		outboxRelay.relayEvents();
+		
+		Mockito.verify(kafkaTemplate, Mockito.times(2)).send(Mockito.<ProducerRecord<String, EventMessage>>any());
+		Mockito.verify(kafkaTemplate).flush();
+		Mockito.verify(outboxEventRepository).deleteAllByIdInBatch(Arrays.asList(1L, 2L));
+		Mockito.verify(outboxEventRepository).releaseLease(Mockito.anyString());
+		
+		Assertions.assertEquals(1, meterRegistry.find(OutboxRelay.SEND_METRIC_NAME).tag("outcome", "success").timer().count());
+	}
+	
+	@Test
+	void testRelayEvents_Failure_SendFails() {
+		stubTransactions();
+		
+		Mockito.when(outboxEventRepository.acquireLease(Mockito.anyString(), Mockito.eq(2000L))).thenReturn(1);
+		Mockito.when(outboxEventRepository.findOldest(10)).thenReturn(Arrays.asList(createEvent(1L)));
+		Mockito.when(kafkaTemplate.send(Mockito.<ProducerRecord<String, EventMessage>>any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Kafka not available")));
+		
+		outboxRelay.relayEvents();
+		
+		Mockito.verify(outboxEventRepository, Mockito.never()).deleteAllByIdInBatch(Mockito.any());
+		Mockito.verify(outboxEventRepository).releaseLease(Mockito.anyString());
+		
+		Assertions.assertEquals(1, meterRegistry.find(OutboxRelay.SEND_METRIC_NAME).tag("outcome", "failure").timer().count());
+	}
+	
+	@Test
+	void testRelay_ConcurrentOnSameNode() throws Exception {
+		List<OutboxEvent> events = Arrays.asList(createEvent(1L), createEvent(2L));
+		CountDownLatch sending = new CountDownLatch(1);
+		CompletableFuture<SendResult<String, EventMessage>> acknowledgement = new CompletableFuture<>();
+		
+		stubTransactions();
+		
+		Mockito.when(outboxEventRepository.acquireLease(Mockito.anyString(), Mockito.eq(2000L))).thenReturn(1);
+		Mockito.when(outboxEventRepository.findOldest(10)).thenReturn(events, List.of());
+		Mockito.when(kafkaTemplate.send(Mockito.<ProducerRecord<String, EventMessage>>any())).thenAnswer(invocation -> {
+			sending.countDown();
+			
+			return acknowledgement;
+		});
+		
+		CompletableFuture<Boolean> firstRelay = CompletableFuture.supplyAsync(outboxRelay::relay);
+		
+		Assertions.assertTrue(sending.await(5, TimeUnit.SECONDS));
+		
+		// the second relay leaves the events to the running one
+		Assertions.assertTrue(outboxRelay.relay());
+		
+		acknowledgement.complete(null);
+		
+		Assertions.assertTrue(firstRelay.get(5, TimeUnit.SECONDS));
+		
+		ArgumentCaptor<String> owners = ArgumentCaptor.forClass(String.class);
+		
+		Mockito.verify(kafkaTemplate, Mockito.times(2)).send(Mockito.<ProducerRecord<String, EventMessage>>any());
+		Mockito.verify(outboxEventRepository).deleteAllByIdInBatch(Arrays.asList(1L, 2L));
+		// the running relay makes one more pass for the second request
+		Mockito.verify(outboxEventRepository, Mockito.times(2)).findOldest(10);
+		Mockito.verify(outboxEventRepository, Mockito.times(2)).acquireLease(owners.capture(), Mockito.eq(2000L));
+		Mockito.verify(outboxEventRepository).releaseLease(owners.getValue());
+		
+		Assertions.assertEquals(1, owners.getAllValues().stream().distinct().count());
+	}
+	
+	@Test
+	void testRelayEvents_BacklogFull() {
+		stubLeaseTakenByOtherNode();
+		
+		Mockito.when(outboxEventRepository.countBacklog(100L)).thenReturn(100L);
+		
+		outboxRelay.relayEvents();
+		
+		Assertions.assertTrue(outboxRelay.isBacklogFull());
+	}
+	
+	@Test
+	void testEventAdded() {
+		ReflectionTestUtils.setField(outboxRelay, "maxBacklog", 2L);
+		
+		outboxRelay.eventAdded();
+		
+		Assertions.assertFalse(outboxRelay.isBacklogFull());
+		
+		outboxRelay.eventAdded();
+		
+		Assertions.assertTrue(outboxRelay.isBacklogFull());
+	}
+	
+	@Test
+	void testCreateRecord() {
+		OutboxEvent event = createEvent(1L);
+		
+		ProducerRecord<String, EventMessage> record = outboxRelay.createRecord(event);
+		
+		Assertions.assertEquals("events", record.topic());
+		Assertions.assertNull(record.partition());
+		Assertions.assertEquals(event.getItemId().toString(), record.key());
+		Assertions.assertNotNull(record.value());
+		Assertions.assertEquals("2", new String(record.headers().lastHeader(OutboxRelay.ITEM_VERSION_HEADER).value(), StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	void testRelayEvents_LeasedByOtherNode() {
+		stubLeaseTakenByOtherNode();
+		
+		Assertions.assertFalse(outboxRelay.relay());
+		
+		Mockito.verify(outboxEventRepository, Mockito.never()).findOldest(Mockito.anyInt());
+		Mockito.verify(outboxEventRepository, Mockito.never()).releaseLease(Mockito.anyString());
+		Mockito.verifyNoInteractions(kafkaTemplate);
+	}
+	
+	@Test
+	void testRequestRelay_LeasedByOtherNode() {
+		stubLeaseTakenByOtherNode();
+		
+		Mockito.doAnswer(invocation -> {
+			invocation.<Runnable>getArgument(0).run();
+			
+			return null;
+		}).when(taskExecutor).execute(Mockito.any(Runnable.class));
+		
+		Mockito.doAnswer(invocation -> {
+			invocation.<Runnable>getArgument(0).run();
+			
+			return null;
+		}).when(taskScheduler).schedule(Mockito.any(Runnable.class), Mockito.any(Instant.class));
+		
+		outboxRelay.requestRelay();
+		
+		// tried once more, then left to the scheduled poll
+		Mockito.verify(taskScheduler).schedule(Mockito.any(Runnable.class), Mockito.any(Instant.class));
+		Mockito.verify(outboxEventRepository, Mockito.times(2)).acquireLease(Mockito.anyString(), Mockito.eq(2000L));
+	}
+	
+	private void stubTransactions() {
+		Mockito.when(transactionTemplate.execute(Mockito.any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(transactionStatus));
+		Mockito.doAnswer(invocation -> {
+			invocation.<Consumer<TransactionStatus>>getArgument(0).accept(transactionStatus);
+			
+			return null;
+		}).when(transactionTemplate).executeWithoutResult(Mockito.any());
+	}
+	
+	private void stubLeaseTakenByOtherNode() {
+		Mockito.when(transactionTemplate.execute(Mockito.any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(transactionStatus));
+		Mockito.when(outboxEventRepository.acquireLease(Mockito.anyString(), Mockito.eq(2000L))).thenReturn(0);
+	}
+	
+	private OutboxEvent createEvent(long id) {
+		return OutboxEvent.builder()
+				.id(id)
+				.eventId(UUID.randomUUID().toString())
+				.itemId(UUID.randomUUID())
+				.itemVersion(2L)
+				.action(ItemAction.ADD)
+				.message("Item was added")
+				.createTime(Instant.now())
+				.build();
+	}
+}